@@ -5,7 +5,26 @@ import com.agui.core.type.EventType;
 
 public class CustomEvent extends BaseEvent {
 
+    private String name;
+    private Object value;
+
     public CustomEvent() {
         super(EventType.CUSTOM);
     }
+
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void setValue(final Object value) {
+        this.value = value;
+    }
+
+    public Object getValue() {
+        return this.value;
+    }
 }
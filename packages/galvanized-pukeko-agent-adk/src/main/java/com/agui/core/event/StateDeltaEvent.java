@@ -3,9 +3,26 @@ package com.agui.core.event;
 
 import com.agui.core.type.EventType;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 public class StateDeltaEvent extends BaseEvent {
 
+    private List<Map<String, Object>> delta = new ArrayList<>();
+
     public StateDeltaEvent() {
         super(EventType.STATE_DELTA);
     }
+
+    /**
+     * @param delta RFC 6902 JSON Patch operations to apply to the client's state
+     */
+    public void setDelta(final List<Map<String, Object>> delta) {
+        this.delta = delta;
+    }
+
+    public List<Map<String, Object>> getDelta() {
+        return this.delta;
+    }
 }
@@ -0,0 +1,93 @@
+package com.agui.core.state;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Builds RFC 6902 JSON Patch operations turning one JSON-shaped value (maps, lists and scalars)
+ * into another. Objects are diffed member by member and arrays element by element, so the patch
+ * only touches what changed. Operations are plain maps so they serialize as-is.
+ */
+public final class JsonPatch {
+
+    private JsonPatch() { }
+
+    public static List<Map<String, Object>> diff(final Map<String, Object> source, final Map<String, Object> target) {
+        List<Map<String, Object>> operations = new ArrayList<>();
+        diffObjects("", source, target, operations);
+        return operations;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void diffValues(
+        final String path,
+        final Object source,
+        final Object target,
+        final List<Map<String, Object>> operations
+    ) {
+        if (source instanceof Map<?, ?> sourceMap && target instanceof Map<?, ?> targetMap) {
+            diffObjects(path, (Map<String, Object>) sourceMap, (Map<String, Object>) targetMap, operations);
+        } else if (source instanceof List<?> sourceList && target instanceof List<?> targetList) {
+            diffArrays(path, sourceList, targetList, operations);
+        } else if (!Objects.equals(source, target)) {
+            operations.add(operation("replace", path, target));
+        }
+    }
+
+    private static void diffObjects(
+        final String path,
+        final Map<String, Object> source,
+        final Map<String, Object> target,
+        final List<Map<String, Object>> operations
+    ) {
+        for (String key : source.keySet()) {
+            if (!target.containsKey(key)) {
+                operations.add(operation("remove", path + "/" + escape(key), null));
+            }
+        }
+        for (Map.Entry<String, Object> entry : target.entrySet()) {
+            String child = path + "/" + escape(entry.getKey());
+            if (source.containsKey(entry.getKey())) {
+                diffValues(child, source.get(entry.getKey()), entry.getValue(), operations);
+            } else {
+                operations.add(operation("add", child, entry.getValue()));
+            }
+        }
+    }
+
+    private static void diffArrays(
+        final String path,
+        final List<?> source,
+        final List<?> target,
+        final List<Map<String, Object>> operations
+    ) {
+        int common = Math.min(source.size(), target.size());
+        for (int i = 0; i < common; i++) {
+            diffValues(path + "/" + i, source.get(i), target.get(i), operations);
+        }
+        // Remove from the end so earlier indices stay valid
+        for (int i = source.size() - 1; i >= common; i--) {
+            operations.add(operation("remove", path + "/" + i, null));
+        }
+        for (int i = common; i < target.size(); i++) {
+            operations.add(operation("add", path + "/-", target.get(i)));
+        }
+    }
+
+    private static Map<String, Object> operation(final String op, final String path, final Object value) {
+        Map<String, Object> operation = new LinkedHashMap<>();
+        operation.put("op", op);
+        operation.put("path", path);
+        if (!"remove".equals(op)) {
+            operation.put("value", value);
+        }
+        return operation;
+    }
+
+    private static String escape(final String key) {
+        return key.replace("~", "~0").replace("/", "~1");
+    }
+}
@@ -1,25 +1,65 @@
 // Temporary copy from _readonly/ag-ui/sdks/community/java — remove when published to Maven
 package com.agui.core.state;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Agent state. The entries are held in a map that is never modified once published: {@link #set}
+ * swaps in a new map and bumps {@link #getVersion()}, so {@link #getState()} and
+ * {@link #snapshot()} hand out the current map without copying, and a reader on another thread
+ * always sees a complete version without locking.
+ */
 public class State {
 
-    private final Map<String, Object> stateMap;
+    private volatile Map<String, Object> stateMap;
+    private volatile long version;
+    private volatile Rendered rendered;
 
     public State() {
-        this(new HashMap<>());
+        this.stateMap = Collections.emptyMap();
     }
 
     public State(final Map<String, Object> stateMap) {
+        this.stateMap = Collections.unmodifiableMap(new LinkedHashMap<>(stateMap));
+    }
+
+    private State(final Map<String, Object> stateMap, final long version) {
         this.stateMap = stateMap;
+        this.version = version;
+    }
+
+    public synchronized void set(final String key, final Object value) {
+        var next = new LinkedHashMap<>(this.stateMap);
+        next.put(key, value);
+        this.stateMap = Collections.unmodifiableMap(next);
+        this.version++;
     }
 
-    public void set(final String key, final Object value) {
-        this.stateMap.put(key, value);
+    /**
+     * A new state holding these entries plus {@code entries}; this one is left unchanged.
+     */
+    public synchronized State withAll(final Map<String, Object> entries) {
+        if (entries.isEmpty()) {
+            return snapshot();
+        }
+        var next = new LinkedHashMap<>(this.stateMap);
+        next.putAll(entries);
+        return new State(Collections.unmodifiableMap(next), this.version + 1);
     }
 
+    /**
+     * The current version as a state of its own, sharing its entries with this one.
+     */
+    public synchronized State snapshot() {
+        return new State(this.stateMap, this.version);
+    }
+
+    /**
+     * The entries of the current version. The map is unmodifiable and does not follow later
+     * {@link #set} calls.
+     */
     public Map<String, Object> getState() {
         return this.stateMap;
     }
@@ -28,14 +68,37 @@ public class State {
         return this.stateMap.get(key);
     }
 
+    /**
+     * Counts the changes made through {@link #set}; renderings of the state can be cached per
+     * version.
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Rendered once per version, as the system prompt includes it on every run.
+     */
     public String toString() {
+        Map<String, Object> entries = this.stateMap;
+        Rendered cached = this.rendered;
+        if (cached != null && cached.entries() == entries) {
+            return cached.text();
+        }
         StringBuilder sb = new StringBuilder();
-        for (Map.Entry<String, Object> entry : stateMap.entrySet()) {
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
             if (!sb.isEmpty()) {
                 sb.append("\n");
             }
             sb.append(entry.getKey()).append(": ").append(entry.getValue());
         }
-        return sb.toString();
+        String text = sb.toString();
+        this.rendered = new Rendered(entries, text);
+        return text;
     }
+
+    /**
+     * Text of the version whose entries are {@code entries}, compared by identity.
+     */
+    private record Rendered(Map<String, Object> entries, String text) { }
 }
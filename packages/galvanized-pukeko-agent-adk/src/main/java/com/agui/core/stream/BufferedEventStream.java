@@ -0,0 +1,282 @@
+package com.agui.core.stream;
+
+import com.agui.core.event.BaseEvent;
+import com.agui.core.event.MessagesSnapshotEvent;
+import com.agui.core.event.StateDeltaEvent;
+import com.agui.core.event.StateSnapshotEvent;
+import com.agui.core.event.TextMessageContentEvent;
+import com.agui.core.exception.AGUIException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+/**
+ * Decouples the agent from the client connection. Events are queued in a bounded buffer and
+ * written to the delegate by a drain task on {@code writerExecutor}, so a slow client never blocks
+ * the producing thread. When the buffer is full the {@link OverflowPolicy} decides how to make
+ * room; if it cannot, the client is disconnected and the run cancelled.
+ */
+public class BufferedEventStream implements IEventStream<BaseEvent> {
+
+    private final IEventStream<BaseEvent> delegate;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Executor writerExecutor;
+    private final StreamBufferMetrics metrics;
+    private final Object lock = new Object();
+    private final Deque<BaseEvent> buffer = new ArrayDeque<>();
+    private final List<Runnable> cancelHandlers = new ArrayList<>();
+
+    private final Logger logger = Logger.getLogger(BufferedEventStream.class.getName());
+
+    private boolean draining = false;
+    private boolean closed = false;
+    private boolean cancelled = false;
+    private Runnable terminal;
+
+    public BufferedEventStream(
+        final IEventStream<BaseEvent> delegate,
+        final int capacity,
+        final OverflowPolicy policy,
+        final Executor writerExecutor,
+        final StreamBufferMetrics metrics
+    ) {
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.writerExecutor = writerExecutor;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void next(final BaseEvent item) {
+        List<Runnable> handlers = List.of();
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            if (buffer.size() < capacity) {
+                enqueue(item);
+            } else if (!offerOnOverflow(item)) {
+                handlers = disconnect();
+            }
+        }
+        runAll(handlers);
+        scheduleDrain();
+    }
+
+    @Override
+    public void error(final Throwable error) {
+        terminate(() -> delegate.error(error));
+    }
+
+    @Override
+    public void complete() {
+        terminate(delegate::complete);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        synchronized (lock) {
+            return cancelled;
+        }
+    }
+
+    @Override
+    public void cancel() {
+        List<Runnable> handlers;
+        synchronized (lock) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            closed = true;
+            terminal = null;
+            clear();
+            handlers = List.copyOf(cancelHandlers);
+        }
+        runAll(handlers);
+        delegate.cancel();
+    }
+
+    @Override
+    public void onCancel(final Runnable handler) {
+        synchronized (lock) {
+            if (!cancelled) {
+                cancelHandlers.add(handler);
+                return;
+            }
+        }
+        handler.run();
+    }
+
+    private void terminate(final Runnable signal) {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            terminal = signal;
+        }
+        scheduleDrain();
+    }
+
+    private void enqueue(final BaseEvent item) {
+        buffer.addLast(item);
+        metrics.recordBuffered(1, buffer.size());
+    }
+
+    /**
+     * Applies the overflow policy to a full buffer and enqueues {@code item} if that made room
+     * for it. Returns {@code false} when the consumer has to be disconnected.
+     */
+    private boolean offerOnOverflow(final BaseEvent item) {
+        switch (policy) {
+            case COALESCE_TEXT -> {
+                compactText();
+                if (item instanceof TextMessageContentEvent content
+                    && buffer.peekLast() instanceof TextMessageContentEvent last
+                    && Objects.equals(last.getMessageId(), content.getMessageId())) {
+                    buffer.pollLast();
+                    buffer.addLast(CoalescingEventStream.merge(last, last.getDelta() + content.getDelta()));
+                    metrics.recordCoalesced(1);
+                    return true;
+                }
+            }
+            case LATEST_SNAPSHOT -> dropSuperseded(item);
+            case DISCONNECT -> {
+                return false;
+            }
+        }
+        if (buffer.size() < capacity) {
+            enqueue(item);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Merges runs of adjacent text deltas of the same message that are waiting in the buffer.
+     */
+    private void compactText() {
+        int merged = 0;
+        Deque<BaseEvent> compacted = new ArrayDeque<>(buffer.size());
+        for (BaseEvent event : buffer) {
+            if (event instanceof TextMessageContentEvent content
+                && compacted.peekLast() instanceof TextMessageContentEvent last
+                && Objects.equals(last.getMessageId(), content.getMessageId())) {
+                compacted.pollLast();
+                compacted.addLast(CoalescingEventStream.merge(last, last.getDelta() + content.getDelta()));
+                merged++;
+            } else {
+                compacted.addLast(event);
+            }
+        }
+        if (merged > 0) {
+            buffer.clear();
+            buffer.addAll(compacted);
+            metrics.recordCoalesced(merged);
+            metrics.recordBuffered(-merged, buffer.size());
+        }
+    }
+
+    /**
+     * Removes buffered state and message snapshots, and state deltas, made obsolete by a newer
+     * snapshot, counting {@code item} as the newest entry.
+     */
+    private void dropSuperseded(final BaseEvent item) {
+        boolean stateSnapshotSeen = item instanceof StateSnapshotEvent;
+        boolean messagesSnapshotSeen = item instanceof MessagesSnapshotEvent;
+        int dropped = 0;
+        for (Iterator<BaseEvent> it = buffer.descendingIterator(); it.hasNext(); ) {
+            BaseEvent event = it.next();
+            boolean superseded = (stateSnapshotSeen && (event instanceof StateSnapshotEvent || event instanceof StateDeltaEvent))
+                || (messagesSnapshotSeen && event instanceof MessagesSnapshotEvent);
+            if (superseded) {
+                it.remove();
+                dropped++;
+            } else {
+                stateSnapshotSeen |= event instanceof StateSnapshotEvent;
+                messagesSnapshotSeen |= event instanceof MessagesSnapshotEvent;
+            }
+        }
+        if (dropped > 0) {
+            metrics.recordDropped(dropped);
+            metrics.recordBuffered(-dropped, buffer.size());
+        }
+    }
+
+    /**
+     * Gives up on the consumer: discards the buffer, queues the error for the delegate and returns
+     * the cancel handlers that stop the run. Called with the lock held.
+     */
+    private List<Runnable> disconnect() {
+        logger.warning("AG-UI client too slow, " + buffer.size() + " events buffered; disconnecting");
+        metrics.recordDisconnect();
+        metrics.recordDropped(buffer.size());
+        clear();
+        cancelled = true;
+        closed = true;
+        terminal = () -> delegate.error(new AGUIException("Client too slow, event buffer of " + capacity + " overflowed"));
+        return List.copyOf(cancelHandlers);
+    }
+
+    private void clear() {
+        metrics.recordBuffered(-buffer.size(), 0);
+        buffer.clear();
+    }
+
+    private void scheduleDrain() {
+        synchronized (lock) {
+            if (draining || (buffer.isEmpty() && Objects.isNull(terminal))) {
+                return;
+            }
+            draining = true;
+        }
+        writerExecutor.execute(this::drain);
+    }
+
+    private void drain() {
+        while (true) {
+            BaseEvent event;
+            Runnable signal = null;
+            synchronized (lock) {
+                event = buffer.pollFirst();
+                if (Objects.nonNull(event)) {
+                    metrics.recordBuffered(-1, 0);
+                } else if (Objects.nonNull(terminal)) {
+                    signal = terminal;
+                    terminal = null;
+                } else {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                if (Objects.nonNull(event)) {
+                    delegate.next(event);
+                } else {
+                    signal.run();
+                }
+            } catch (Exception e) {
+                logger.severe("Error writing buffered event: " + e.getMessage());
+            }
+        }
+    }
+
+    private void runAll(final List<Runnable> handlers) {
+        for (Runnable handler : handlers) {
+            try {
+                handler.run();
+            } catch (Exception e) {
+                logger.severe("Error in cancel handler: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.agui.core.stream;
+
+import com.agui.core.event.BaseEvent;
+import com.agui.core.event.TextMessageContentEvent;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges consecutive {@code TEXT_MESSAGE_CONTENT} deltas for the same message before handing
+ * them to the delegate stream. A merged delta is flushed once its time window has elapsed, once
+ * it reaches the byte budget, when any other event arrives, and before the stream terminates.
+ * The scheduler only times the window; the flush itself, which writes to the client, is handed to
+ * {@code flushExecutor} so a slow connection never holds up the shared timer thread.
+ */
+public class CoalescingEventStream implements IEventStream<BaseEvent> {
+
+    private final IEventStream<BaseEvent> delegate;
+    private final Duration window;
+    private final int maxBytes;
+    private final ScheduledExecutorService scheduler;
+    private final Executor flushExecutor;
+    private final Object lock = new Object();
+
+    private TextMessageContentEvent pending;
+    private StringBuilder pendingDelta;
+    private int pendingBytes;
+    private int pendingCount;
+    private ScheduledFuture<?> pendingFlush;
+
+    /**
+     * @param delegate  stream receiving the coalesced events
+     * @param window    longest time a delta is held back waiting for more
+     * @param maxBytes  UTF-8 size at which a merged delta is flushed immediately
+     * @param scheduler     shared scheduler timing the windows
+     * @param flushExecutor executor writing a delta whose window has elapsed
+     */
+    public CoalescingEventStream(
+        final IEventStream<BaseEvent> delegate,
+        final Duration window,
+        final int maxBytes,
+        final ScheduledExecutorService scheduler,
+        final Executor flushExecutor
+    ) {
+        this.delegate = delegate;
+        this.window = window;
+        this.maxBytes = maxBytes;
+        this.scheduler = scheduler;
+        this.flushExecutor = flushExecutor;
+    }
+
+    @Override
+    public void next(final BaseEvent item) {
+        synchronized (lock) {
+            if (item instanceof TextMessageContentEvent content && Objects.nonNull(content.getDelta())) {
+                append(content);
+                return;
+            }
+            flush();
+            delegate.next(item);
+        }
+    }
+
+    @Override
+    public void error(final Throwable error) {
+        synchronized (lock) {
+            flush();
+            delegate.error(error);
+        }
+    }
+
+    @Override
+    public void complete() {
+        synchronized (lock) {
+            flush();
+            delegate.complete();
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return delegate.isCancelled();
+    }
+
+    @Override
+    public void cancel() {
+        synchronized (lock) {
+            discard();
+        }
+        delegate.cancel();
+    }
+
+    @Override
+    public void onCancel(final Runnable handler) {
+        delegate.onCancel(handler);
+    }
+
+    private void append(final TextMessageContentEvent content) {
+        if (Objects.nonNull(pending) && !Objects.equals(pending.getMessageId(), content.getMessageId())) {
+            flush();
+        }
+        if (Objects.isNull(pending)) {
+            pending = content;
+            pendingDelta = new StringBuilder(content.getDelta());
+            pendingBytes = utf8Length(content.getDelta());
+            pendingCount = 1;
+            pendingFlush = scheduler.schedule(
+                () -> flushExecutor.execute(() -> flushWindow(content)),
+                window.toNanos(),
+                TimeUnit.NANOSECONDS
+            );
+        } else {
+            pendingDelta.append(content.getDelta());
+            pendingBytes += utf8Length(content.getDelta());
+            pendingCount++;
+        }
+        if (pendingBytes >= maxBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Flushes the delta started by {@code first}, unless it went out in the meantime.
+     */
+    private void flushWindow(final TextMessageContentEvent first) {
+        synchronized (lock) {
+            if (pending == first) {
+                flush();
+            }
+        }
+    }
+
+    private void flush() {
+        if (Objects.isNull(pending)) {
+            return;
+        }
+        var merged = pendingCount > 1 ? merge(pending, pendingDelta.toString()) : pending;
+        discard();
+        delegate.next(merged);
+    }
+
+    private void discard() {
+        if (Objects.nonNull(pendingFlush)) {
+            pendingFlush.cancel(false);
+        }
+        pending = null;
+        pendingDelta = null;
+        pendingBytes = 0;
+        pendingCount = 0;
+        pendingFlush = null;
+    }
+
+    /**
+     * Copy of {@code first} carrying {@code delta}; the merged event keeps the message id and
+     * timestamp of its first delta.
+     */
+    static TextMessageContentEvent merge(final TextMessageContentEvent first, final String delta) {
+        var merged = new TextMessageContentEvent();
+        merged.setMessageId(first.getMessageId());
+        merged.setDelta(delta);
+        merged.setTimestamp(first.getTimestamp());
+        return merged;
+    }
+
+    static int utf8Length(final String text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -1,6 +1,8 @@
 // Temporary copy from _readonly/ag-ui/sdks/community/java — remove when published to Maven
 package com.agui.core.stream;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
@@ -13,6 +15,7 @@ public class EventStream<T> implements IEventStream<T> {
     private final AtomicBoolean cancelled = new AtomicBoolean(false);
     private final AtomicBoolean completed = new AtomicBoolean(false);
     private final Object lock = new Object();
+    private final List<Runnable> cancelHandlers = new ArrayList<>();
 
     private final Logger logger = Logger.getLogger(EventStream.class.getName());
 
@@ -82,9 +85,33 @@ public class EventStream<T> implements IEventStream<T> {
 
     @Override
     public void cancel() {
+        List<Runnable> handlers;
         synchronized (lock) {
-            cancelled.set(true);
+            if (cancelled.getAndSet(true)) {
+                return;
+            }
+            handlers = List.copyOf(cancelHandlers);
+        }
+
+        for (Runnable handler : handlers) {
+            try {
+                handler.run();
+            } catch (Exception e) {
+                logger.severe("Error in cancel handler: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void onCancel(Runnable handler) {
+        synchronized (lock) {
+            if (!cancelled.get()) {
+                cancelHandlers.add(handler);
+                return;
+            }
         }
+        handler.run();
     }
 
     public boolean isCompleted() {
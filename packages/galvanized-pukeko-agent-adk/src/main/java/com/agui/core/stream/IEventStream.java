@@ -12,4 +12,6 @@ public interface IEventStream<T> {
     boolean isCancelled();
 
     void cancel();
+
+    void onCancel(Runnable handler);
 }
@@ -0,0 +1,24 @@
+package com.agui.core.stream;
+
+/**
+ * What a {@link BufferedEventStream} does when its consumer falls so far behind that the buffer
+ * is full. Every policy disconnects the consumer when it cannot make room.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Merge text deltas of the same message that are waiting in the buffer.
+     */
+    COALESCE_TEXT,
+
+    /**
+     * Drop buffered state snapshots, state deltas and message snapshots that a newer snapshot
+     * in the buffer supersedes.
+     */
+    LATEST_SNAPSHOT,
+
+    /**
+     * Fail the stream and cancel the run.
+     */
+    DISCONNECT
+}
@@ -0,0 +1,161 @@
+package com.agui.core.stream;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Lock-free alternative to {@link EventStream} for streams fed from several threads. Signals are
+ * put on a multi-producer queue and whichever producer finds the stream idle drains it, so the
+ * callbacks are never run concurrently and see items in the order they were queued. Exactly one
+ * terminal signal is delivered, after every item queued before it; a failing {@code onNext} ends
+ * the stream with that error in place.
+ */
+public class SerializedEventStream<T> implements IEventStream<T> {
+
+    private final Consumer<T> onNext;
+    private final Consumer<Throwable> onError;
+    private final Runnable onComplete;
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicReference<Terminal> terminal = new AtomicReference<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final Queue<Runnable> cancelHandlers = new ConcurrentLinkedQueue<>();
+
+    private final Logger logger = Logger.getLogger(SerializedEventStream.class.getName());
+
+    /** Only read and written by the draining thread. */
+    private boolean done = false;
+
+    public SerializedEventStream(
+        final Consumer<T> onNext,
+        final Consumer<Throwable> onError,
+        final Runnable onComplete
+    ) {
+        this.onNext = onNext;
+        this.onError = onError;
+        this.onComplete = onComplete;
+    }
+
+    @Override
+    public void next(final T item) {
+        if (Objects.isNull(item) || Objects.nonNull(terminal.get()) || cancelled.get()) {
+            return;
+        }
+        queue.offer(item);
+        drain();
+    }
+
+    @Override
+    public void error(final Throwable error) {
+        if (terminal.compareAndSet(null, new Terminal(error))) {
+            drain();
+        }
+    }
+
+    @Override
+    public void complete() {
+        if (terminal.compareAndSet(null, new Terminal(null))) {
+            drain();
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    @Override
+    public void cancel() {
+        if (cancelled.compareAndSet(false, true)) {
+            runCancelHandlers();
+            drain();
+        }
+    }
+
+    @Override
+    public void onCancel(final Runnable handler) {
+        cancelHandlers.offer(handler);
+        if (cancelled.get()) {
+            runCancelHandlers();
+        }
+    }
+
+    public boolean isCompleted() {
+        return Objects.nonNull(terminal.get());
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (true) {
+                if (done || cancelled.get()) {
+                    queue.clear();
+                    break;
+                }
+                // Read the terminal before polling so every item queued ahead of it is delivered first
+                Terminal end = terminal.get();
+                T item = queue.poll();
+                if (Objects.isNull(item)) {
+                    if (Objects.nonNull(end)) {
+                        done = true;
+                        deliver(end);
+                    }
+                    break;
+                }
+                emit(item);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emit(final T item) {
+        if (Objects.isNull(onNext)) {
+            return;
+        }
+        try {
+            onNext.accept(item);
+        } catch (Exception e) {
+            // Fail in order rather than racing the error against items still in the queue
+            terminal.compareAndSet(null, new Terminal(e));
+            done = true;
+            deliver(new Terminal(e));
+        }
+    }
+
+    private void deliver(final Terminal end) {
+        try {
+            if (Objects.nonNull(end.error)) {
+                if (Objects.nonNull(onError)) {
+                    onError.accept(end.error);
+                }
+            } else if (Objects.nonNull(onComplete)) {
+                onComplete.run();
+            }
+        } catch (Exception e) {
+            logger.severe("Error in terminal handler: " + e.getMessage());
+        }
+    }
+
+    private void runCancelHandlers() {
+        Runnable handler;
+        while (Objects.nonNull(handler = cancelHandlers.poll())) {
+            try {
+                handler.run();
+            } catch (Exception e) {
+                logger.severe("Error in cancel handler: " + e.getMessage());
+            }
+        }
+    }
+
+    private record Terminal(Throwable error) {
+    }
+}
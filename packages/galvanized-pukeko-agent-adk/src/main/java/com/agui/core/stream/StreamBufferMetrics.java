@@ -0,0 +1,59 @@
+package com.agui.core.stream;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters shared by all {@link BufferedEventStream}s of an application.
+ */
+public class StreamBufferMetrics {
+
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+
+    void recordBuffered(final int delta, final int streamDepth) {
+        buffered.addAndGet(delta);
+        highWaterMark.accumulateAndGet(streamDepth, Math::max);
+    }
+
+    void recordCoalesced(final int count) {
+        coalesced.add(count);
+    }
+
+    void recordDropped(final int count) {
+        dropped.add(count);
+    }
+
+    void recordDisconnect() {
+        disconnects.increment();
+    }
+
+    /**
+     * Events currently waiting in all stream buffers.
+     */
+    public int getBuffered() {
+        return buffered.get();
+    }
+
+    /**
+     * Deepest any single stream buffer has been.
+     */
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getDisconnects() {
+        return disconnects.sum();
+    }
+}
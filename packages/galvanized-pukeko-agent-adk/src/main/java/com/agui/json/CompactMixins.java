@@ -0,0 +1,72 @@
+package com.agui.json;
+
+import com.agui.core.event.BaseEvent;
+import com.agui.core.event.TextMessageStartEvent;
+import com.agui.core.event.ToolCallResultEvent;
+import com.agui.core.message.Role;
+import com.agui.json.mixins.EventMixin;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Mixins of the compact encodings: on top of null properties they leave out the optional
+ * {@code timestamp} and roles that equal the AG-UI default for their event.
+ */
+final class CompactMixins {
+
+    private CompactMixins() { }
+
+    static ObjectMapper apply(final ObjectMapper mapper) {
+        return mapper
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .addMixIn(BaseEvent.class, CompactEventMixin.class)
+            .addMixIn(TextMessageStartEvent.class, CompactTextMessageStartEventMixin.class)
+            .addMixIn(ToolCallResultEvent.class, CompactToolCallResultEventMixin.class);
+    }
+
+    @JsonIgnoreProperties("timestamp")
+    interface CompactEventMixin extends EventMixin {
+    }
+
+    interface CompactTextMessageStartEventMixin {
+
+        @JsonInclude(value = JsonInclude.Include.CUSTOM, valueFilter = AssistantRole.class)
+        String getRole();
+    }
+
+    interface CompactToolCallResultEventMixin {
+
+        @JsonInclude(value = JsonInclude.Include.CUSTOM, valueFilter = ToolRole.class)
+        Role getRole();
+    }
+
+    /**
+     * Value filters return {@code true} for values to leave out.
+     */
+    static final class AssistantRole {
+
+        @Override
+        public boolean equals(final Object value) {
+            return value == null || "assistant".equals(value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+
+    static final class ToolRole {
+
+        @Override
+        public boolean equals(final Object value) {
+            return value == null || value == Role.tool;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.agui.json;
+
+import com.agui.core.event.BaseEvent;
+
+/**
+ * An event to be written in a specific {@link EventEncoding} rather than plain JSON.
+ */
+public record EncodedEvent(BaseEvent event, EventEncoding encoding) {
+}
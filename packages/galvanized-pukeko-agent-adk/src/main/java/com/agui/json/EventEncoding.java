@@ -0,0 +1,103 @@
+package com.agui.json;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Wire formats AG-UI events can be written in. Clients pick one by name (e.g. an
+ * {@code encoding} query parameter) or by media type in their {@code Accept} header.
+ */
+public enum EventEncoding {
+
+    /**
+     * Plain JSON, every property included. The default.
+     */
+    JSON("json", "application/json", false),
+
+    /**
+     * JSON without null properties such as the unset {@code rawEvent}, without the optional
+     * {@code timestamp}, and without roles that are the default for their event.
+     */
+    COMPACT_JSON("compact", MediaTypes.COMPACT_JSON, false),
+
+    /**
+     * Jackson's binary Smile format, leaving out what {@link #COMPACT_JSON} does.
+     */
+    SMILE("smile", MediaTypes.SMILE, true),
+
+    /**
+     * CBOR (RFC 8949), leaving out what {@link #COMPACT_JSON} does.
+     */
+    CBOR("cbor", MediaTypes.CBOR, true);
+
+    /**
+     * Media types of the non-default encodings, as constants for request mappings.
+     */
+    public static final class MediaTypes {
+
+        public static final String COMPACT_JSON = "application/vnd.ag-ui.compact+json";
+        public static final String SMILE = "application/x-jackson-smile";
+        public static final String CBOR = "application/cbor";
+
+        private MediaTypes() { }
+    }
+
+    private final String name;
+    private final String mediaType;
+    private final boolean binary;
+
+    EventEncoding(final String name, final String mediaType, final boolean binary) {
+        this.name = name;
+        this.mediaType = mediaType;
+        this.binary = binary;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Whether the encoding produces bytes that cannot be carried in a text frame or an SSE
+     * {@code data} field.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public static Optional<EventEncoding> fromName(final String name) {
+        for (EventEncoding encoding : values()) {
+            if (encoding.name.equalsIgnoreCase(name)) {
+                return Optional.of(encoding);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Picks the encoding named by {@code name} if given, otherwise the first one listed in the
+     * {@code accept} header, otherwise {@link #JSON}.
+     *
+     * @throws IllegalArgumentException if {@code name} is not a known encoding
+     */
+    public static EventEncoding negotiate(final String name, final String accept) {
+        if (Objects.nonNull(name) && !name.isBlank()) {
+            return fromName(name.trim())
+                .orElseThrow(() -> new IllegalArgumentException("Unknown event encoding: " + name));
+        }
+        if (Objects.nonNull(accept)) {
+            for (String range : accept.split(",")) {
+                String type = range.split(";", 2)[0].trim();
+                for (EventEncoding encoding : values()) {
+                    if (encoding != JSON && encoding.mediaType.equalsIgnoreCase(type)) {
+                        return encoding;
+                    }
+                }
+            }
+        }
+        return JSON;
+    }
+}
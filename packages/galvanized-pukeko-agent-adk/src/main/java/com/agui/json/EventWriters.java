@@ -0,0 +1,74 @@
+package com.agui.json;
+
+import com.agui.core.event.BaseEvent;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serializes AG-UI events straight into an output stream. Keeps one {@link ObjectWriter} per
+ * encoding and concrete event type, so the serializer for the mixin-driven event hierarchy is
+ * resolved once per type instead of on every event.
+ */
+public class EventWriters {
+
+    private final ObjectMapper objectMapper;
+    private final Map<EventEncoding, ObjectMapper> mappers = new EnumMap<>(EventEncoding.class);
+    private final Map<EventEncoding, Map<Class<?>, ObjectWriter>> writers = new EnumMap<>(EventEncoding.class);
+
+    public EventWriters(final ObjectMapper objectMapper) {
+        ObjectMapperFactory.addMixins(objectMapper);
+        this.objectMapper = objectMapper;
+        mappers.put(EventEncoding.JSON, objectMapper);
+        mappers.put(EventEncoding.COMPACT_JSON, CompactMixins.apply(objectMapper.copy()));
+        mappers.put(EventEncoding.SMILE, CompactMixins.apply(objectMapper.copyWith(new SmileFactory())));
+        mappers.put(EventEncoding.CBOR, CompactMixins.apply(objectMapper.copyWith(new CBORFactory())));
+        for (EventEncoding encoding : EventEncoding.values()) {
+            writers.put(encoding, new ConcurrentHashMap<>());
+        }
+    }
+
+    public ObjectWriter writerFor(final BaseEvent event) {
+        return writerFor(EventEncoding.JSON, event);
+    }
+
+    public ObjectWriter writerFor(final EventEncoding encoding, final BaseEvent event) {
+        return writers.get(encoding).computeIfAbsent(event.getClass(), mappers.get(encoding)::writerFor);
+    }
+
+    /**
+     * Writes the event as JSON to {@code outputStream} without closing it.
+     */
+    public void write(final BaseEvent event, final OutputStream outputStream) throws IOException {
+        write(EventEncoding.JSON, event, outputStream);
+    }
+
+    /**
+     * Writes the event in {@code encoding} to {@code outputStream} without closing it.
+     */
+    public void write(final EventEncoding encoding, final BaseEvent event, final OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = mappers.get(encoding).getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writerFor(encoding, event).writeValue(generator, event);
+        }
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return this.objectMapper;
+    }
+
+    /**
+     * Mapper writing {@code encoding}; its factory creates generators for envelopes around events.
+     */
+    public ObjectMapper getObjectMapper(final EventEncoding encoding) {
+        return mappers.get(encoding);
+    }
+}
@@ -1,16 +1,20 @@
 // Temporary copy from _readonly/ag-ui/sdks/community/java — remove when published to Maven
 package com.agui.json.mixins;
 
-import com.fasterxml.jackson.annotation.JsonAnyGetter;
-import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
 
 import java.util.Map;
 
-public interface StateMixin {
+/**
+ * Binds {@code State} to a plain JSON object. It is read in one go through the map constructor
+ * rather than key by key, since every {@code set} publishes a new version of the entries.
+ */
+public abstract class StateMixin {
 
-    @JsonAnyGetter
-    Map<String, Object> getState();
+    @JsonCreator
+    StateMixin(final Map<String, Object> stateMap) { }
 
-    @JsonAnySetter
-    void set(String key, Object value);
+    @JsonValue
+    abstract Map<String, Object> getState();
 }
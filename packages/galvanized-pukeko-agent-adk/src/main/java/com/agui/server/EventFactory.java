@@ -5,6 +5,9 @@ import com.agui.core.event.*;
 import com.agui.core.message.Role;
 import com.agui.core.state.State;
 
+import java.util.List;
+import java.util.Map;
+
 public class EventFactory {
 
     private EventFactory() { }
@@ -84,4 +87,10 @@ public class EventFactory {
         event.setState(state);
         return event;
     }
+
+    public static StateDeltaEvent stateDeltaEvent(final List<Map<String, Object>> delta) {
+        var event = new StateDeltaEvent();
+        event.setDelta(delta);
+        return event;
+    }
 }
@@ -0,0 +1,19 @@
+package com.agui.server;
+
+/**
+ * Which side owns the conversation history of a thread.
+ */
+public enum HistoryMode {
+
+    /**
+     * The client sends its whole history with every run, as plain AG-UI does.
+     */
+    CLIENT,
+
+    /**
+     * The server keeps the history, including the messages its runs produce. Clients send only
+     * the new turn, and the agent sees the full thread. A run request without messages replays
+     * the history as a {@code MESSAGES_SNAPSHOT} instead of running the agent.
+     */
+    SERVER
+}
@@ -3,6 +3,7 @@ package com.agui.server;
 
 import com.agui.core.agent.Agent;
 import com.agui.core.agent.AgentSubscriber;
+import com.agui.core.agent.AgentSubscriberParams;
 import com.agui.core.agent.RunAgentInput;
 import com.agui.core.agent.RunAgentParameters;
 import com.agui.core.context.Context;
@@ -14,61 +15,173 @@ import com.agui.core.message.SystemMessage;
 import com.agui.core.message.UserMessage;
 import com.agui.core.state.State;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public abstract class LocalAgent implements Agent {
 
+    private static final Duration DEFAULT_THREAD_TTL = Duration.ofMinutes(30);
+    private static final int DEFAULT_MAX_THREADS = 10_000;
+
     protected final String agentId;
-    protected State state;
-    protected List<BaseMessage> messages;
+    protected final ThreadStateStore threads;
+    protected final Executor runExecutor;
 
     public LocalAgent(
             final String agentId,
             final State state,
             final List<BaseMessage> messages
+    ) throws AGUIException {
+        this(agentId, state, messages, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param state    state every thread starts from
+     * @param messages messages every thread starts with
+     */
+    public LocalAgent(
+            final String agentId,
+            final State state,
+            final List<BaseMessage> messages,
+            final Executor runExecutor
+    ) throws AGUIException {
+        this(agentId, new ThreadStateStore(DEFAULT_THREAD_TTL, DEFAULT_MAX_THREADS, HistoryMode.CLIENT, state, messages), runExecutor);
+    }
+
+    public LocalAgent(
+            final String agentId,
+            final ThreadStateStore threads,
+            final Executor runExecutor
     ) throws AGUIException {
         this.agentId = agentId;
-        this.state = state;
-        this.messages = messages;
+        this.threads = threads;
+        this.runExecutor = runExecutor;
     }
 
     public String getAgentId() {
         return this.agentId;
     }
 
-    public void setState(final State state) {
-        this.state = state;
+    /**
+     * Replaces the state of one thread.
+     */
+    public void setState(final String threadId, final State state) {
+        this.threads.get(threadId).setState(state);
     }
 
+    /**
+     * Conversation state is kept per thread, so there are no agent-wide messages.
+     *
+     * @return an empty list
+     * @deprecated use {@link #getMessages(String)}
+     */
+    @Deprecated
+    @Override
     public List<BaseMessage> getMessages() {
-        return this.messages;
+        return List.of();
+    }
+
+    /**
+     * The messages seen on {@code threadId}.
+     */
+    public List<BaseMessage> getMessages(final String threadId) {
+        return this.threads.get(threadId).getMessages();
     }
 
     @Override
     public CompletableFuture<Void> runAgent(RunAgentParameters parameters, AgentSubscriber subscriber) {
         CompletableFuture<Void> future = new CompletableFuture<>();
 
+        var runId = Objects.isNull(parameters.getRunId())
+                ? UUID.randomUUID().toString()
+                : parameters.getRunId();
+        // A request without a thread gets state of its own rather than sharing a null key
+        var thread = this.threads.get(Objects.isNull(parameters.getThreadId()) ? runId : parameters.getThreadId());
+        if (Objects.nonNull(parameters.getState())) {
+            thread.setState(parameters.getState());
+        }
+
+        thread.merge(parameters.getMessages());
+        boolean serverHistory = this.threads.getHistoryMode() == HistoryMode.SERVER;
+        boolean replay = serverHistory
+                && (Objects.isNull(parameters.getMessages()) || parameters.getMessages().isEmpty());
+
         var input = new RunAgentInput(
                 parameters.getThreadId(),
-                Objects.isNull(parameters.getRunId())
-                        ? UUID.randomUUID().toString()
-                        : parameters.getRunId(),
-                Objects.nonNull(parameters.getState())
-                        ? parameters.getState()
-                        : this.state,
-                parameters.getMessages(),
+                runId,
+                thread.getState(),
+                serverHistory ? thread.getMessages() : parameters.getMessages(),
                 parameters.getTools(),
                 parameters.getContext(),
                 parameters.getForwardedProps()
         );
 
-        CompletableFuture.runAsync(() -> this.run(input, subscriber));
+        Runnable task = replay
+                ? () -> this.replayHistory(input, thread, subscriber, future)
+                : () -> this.run(input, thread, subscriber, future);
+        if (this.runExecutor instanceof RunExecutor runs) {
+            // Counted as a run until the future completes, not just while the task returns
+            try {
+                runs.executeRun(() -> {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        future.completeExceptionally(e);
+                    }
+                }, future);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        } else {
+            CompletableFuture.runAsync(task, this.runExecutor)
+                    .exceptionally(throwable -> {
+                        future.completeExceptionally(throwable);
+                        return null;
+                    });
+        }
 
         return future;
     }
 
-    protected abstract void run(RunAgentInput input, AgentSubscriber subscriber);
+    /**
+     * Executes the run. Implementations complete {@code future} when the run finalizes or fails,
+     * and stop their upstream work when it is cancelled. {@code thread} holds the conversation
+     * state of the run's thread, with the input messages already merged in.
+     */
+    protected abstract void run(RunAgentInput input, ThreadState thread, AgentSubscriber subscriber, CompletableFuture<Void> future);
+
+    /**
+     * Answers a run request that brings no new messages with the thread's history, so a client
+     * reconnecting to a server-owned thread can rebuild its view without running the agent.
+     */
+    protected void replayHistory(RunAgentInput input, ThreadState thread, AgentSubscriber subscriber, CompletableFuture<Void> future) {
+        var runStarted = new RunStartedEvent();
+        runStarted.setThreadId(input.threadId());
+        runStarted.setRunId(input.runId());
+        emitEvent(runStarted, subscriber);
+
+        var snapshot = new MessagesSnapshotEvent();
+        snapshot.setMessages(thread.getMessages());
+        emitEvent(snapshot, subscriber);
+
+        var runFinished = new RunFinishedEvent();
+        runFinished.setThreadId(input.threadId());
+        runFinished.setRunId(input.runId());
+        emitEvent(runFinished, subscriber);
+
+        subscriber.onRunFinalized(subscriberParams(input, thread));
+        future.complete(null);
+    }
+
+    /**
+     * Parameters for the subscriber's run callbacks, carrying only the run's own thread state.
+     */
+    protected AgentSubscriberParams subscriberParams(final RunAgentInput input, final ThreadState thread) {
+        return new AgentSubscriberParams(thread.getMessages(), thread.getState(), this, input);
+    }
 
     protected void emitEvent(final BaseEvent event, final AgentSubscriber subscriber) {
         subscriber.onEvent(event);
@@ -97,6 +210,9 @@ public abstract class LocalAgent implements Agent {
             case TOOL_CALL_ARGS -> subscriber.onToolCallArgsEvent((ToolCallArgsEvent) event);
             case TOOL_CALL_RESULT -> subscriber.onToolCallResultEvent((ToolCallResultEvent) event);
             case TOOL_CALL_END -> subscriber.onToolCallEndEvent((ToolCallEndEvent) event);
+            case MESSAGES_SNAPSHOT -> subscriber.onMessagesSnapshotEvent((MessagesSnapshotEvent) event);
+            case STATE_SNAPSHOT -> subscriber.onStateSnapshotEvent((StateSnapshotEvent) event);
+            case STATE_DELTA -> subscriber.onStateDeltaEvent((StateDeltaEvent) event);
         }
     }
 
@@ -126,6 +242,14 @@ Context:
         return systemMessage;
     }
 
+    /**
+     * The latest user message of {@code thread}, found through its role index.
+     */
+    protected UserMessage getLatestUserMessage(ThreadState thread) throws AGUIException {
+        return (UserMessage) thread.getLatestMessage(Role.user)
+                .orElseThrow(() -> new AGUIException("No User Message found."));
+    }
+
     protected UserMessage getLatestUserMessage(List<BaseMessage> messages) throws AGUIException {
         return (UserMessage) messages.stream()
                 .filter(m -> m.getRole().equals(Role.user))
@@ -133,11 +257,7 @@ Context:
                 .orElseThrow(() -> new AGUIException("No User Message found."));
     }
 
-    protected void combineMessages(RunAgentInput input) {
-        input.messages().forEach((message) -> {
-            if (this.messages.stream().filter((m) -> m.getId().equals(message.getId())).findAny().isEmpty()) {
-                this.messages.add(message);
-            }
-        });
+    protected void combineMessages(RunAgentInput input, ThreadState thread) {
+        thread.merge(input.messages());
     }
 }
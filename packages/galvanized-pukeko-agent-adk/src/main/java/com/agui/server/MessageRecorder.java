@@ -0,0 +1,136 @@
+package com.agui.server;
+
+import com.agui.core.event.*;
+import com.agui.core.function.FunctionCall;
+import com.agui.core.message.AssistantMessage;
+import com.agui.core.message.BaseMessage;
+import com.agui.core.message.ToolMessage;
+import com.agui.core.tool.ToolCall;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Rebuilds the messages a run produced from its event stream, so the server holds the assistant
+ * turns a client would otherwise have to send back. Text messages, tool calls and tool results
+ * use the ids of their events, which lets them deduplicate against a client that does send its
+ * history. A tool result without a message id gets {@link #toolResultId}, the id translators
+ * should set on the event so the client stores the result under it too. A call announced by a
+ * {@value #TOOL_CALL_SUPERSEDED_EVENT} event before its end is left out, as it never runs. Used by
+ * a single run at a time.
+ */
+public class MessageRecorder {
+
+    /**
+     * Name of the {@code CUSTOM} event with value {@code {"toolCallId":...,"supersededBy":...}}
+     * telling clients that a streamed call was replaced and must be dropped from the history.
+     */
+    public static final String TOOL_CALL_SUPERSEDED_EVENT = "tool_call.superseded";
+
+    private final Map<String, AssistantMessage> assistantMessages = new LinkedHashMap<>();
+    private final Map<String, StringBuilder> text = new HashMap<>();
+    private final Map<String, PendingToolCall> toolCalls = new HashMap<>();
+    private final List<BaseMessage> messages = new ArrayList<>();
+
+    /**
+     * Message id of the result of {@code toolCallId}, the same on every run that sees it.
+     */
+    public static String toolResultId(final String toolCallId) {
+        return "tool-result-" + toolCallId;
+    }
+
+    public void record(final BaseEvent event) {
+        switch (event.getType()) {
+            case TEXT_MESSAGE_START -> assistant(((TextMessageStartEvent) event).getMessageId());
+            case TEXT_MESSAGE_CONTENT -> {
+                var content = (TextMessageContentEvent) event;
+                appendText(content.getMessageId(), content.getDelta());
+            }
+            case TEXT_MESSAGE_CHUNK -> {
+                var chunk = (TextMessageChunkEvent) event;
+                appendText(chunk.getMessageId(), chunk.getDelta());
+            }
+            case TOOL_CALL_START -> {
+                var start = (ToolCallStartEvent) event;
+                String parentId = Objects.isNull(start.getParentMessageId())
+                        ? start.getToolCallId()
+                        : start.getParentMessageId();
+                toolCalls.put(start.getToolCallId(),
+                        new PendingToolCall(assistant(parentId), start.getToolCallName(), new StringBuilder()));
+            }
+            case TOOL_CALL_ARGS -> {
+                var args = (ToolCallArgsEvent) event;
+                var pending = toolCalls.get(args.getToolCallId());
+                if (Objects.nonNull(pending) && Objects.nonNull(args.getDelta())) {
+                    pending.arguments().append(args.getDelta());
+                }
+            }
+            case TOOL_CALL_END -> {
+                String toolCallId = ((ToolCallEndEvent) event).getToolCallId();
+                var pending = toolCalls.remove(toolCallId);
+                if (Objects.nonNull(pending) && Objects.nonNull(pending.name())) {
+                    pending.message().addToolCall(new ToolCall(toolCallId, "function",
+                            new FunctionCall(pending.name(), pending.arguments().toString())));
+                }
+            }
+            case TOOL_CALL_RESULT -> {
+                var result = (ToolCallResultEvent) event;
+                var message = new ToolMessage();
+                message.setId(Objects.requireNonNullElseGet(result.getMessageId(),
+                        () -> toolResultId(result.getToolCallId())));
+                message.setToolCallId(result.getToolCallId());
+                message.setContent(result.getContent());
+                messages.add(message);
+            }
+            case CUSTOM -> {
+                var custom = (CustomEvent) event;
+                if (TOOL_CALL_SUPERSEDED_EVENT.equals(custom.getName())) {
+                    toolCalls.remove(supersededId(custom.getValue()));
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * The messages recorded so far, in the order they were started. Text still streaming is
+     * included as far as it has arrived.
+     */
+    public List<BaseMessage> getMessages() {
+        text.forEach((id, content) -> assistantMessages.get(id).setContent(content.toString()));
+        return List.copyOf(messages);
+    }
+
+    private AssistantMessage assistant(final String id) {
+        return assistantMessages.computeIfAbsent(id, key -> {
+            var message = new AssistantMessage();
+            message.setId(key);
+            messages.add(message);
+            return message;
+        });
+    }
+
+    private static String supersededId(final Object value) {
+        if (value instanceof JsonNode node) {
+            return node.path("toolCallId").asText(null);
+        }
+        if (value instanceof Map<?, ?> map && map.get("toolCallId") instanceof String id) {
+            return id;
+        }
+        return null;
+    }
+
+    private void appendText(final String messageId, final String delta) {
+        assistant(messageId);
+        text.computeIfAbsent(messageId, id -> new StringBuilder()).append(Objects.requireNonNullElse(delta, ""));
+    }
+
+    private record PendingToolCall(AssistantMessage message, String name, StringBuilder arguments) {
+    }
+}
@@ -0,0 +1,124 @@
+package com.agui.server;
+
+import com.agui.core.message.BaseMessage;
+import com.agui.core.message.Role;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+
+/**
+ * Messages of one conversation in arrival order, indexed by id and by the latest message of each
+ * role. Merging costs one hash lookup per incoming message, the lookups are constant time and the
+ * message list is a view rather than a copy, so a turn costs O(delta) however long the history is.
+ * Not thread-safe; {@link ThreadState} guards it.
+ */
+public class MessageStore {
+
+    private final Map<String, BaseMessage> byId = new HashMap<>();
+    private final Map<Role, BaseMessage> latestByRole = new EnumMap<>(Role.class);
+
+    /** Append-only: slots below {@code size} are never written again, a full array is replaced. */
+    private BaseMessage[] elements = new BaseMessage[16];
+    private int size;
+
+    /** View handed out until the next change. */
+    private List<BaseMessage> snapshot = List.of();
+
+    /**
+     * Appends the messages whose ids are not in the store yet.
+     *
+     * @return the number of messages appended
+     */
+    public int merge(final List<BaseMessage> incoming) {
+        if (Objects.isNull(incoming)) {
+            return 0;
+        }
+        int added = 0;
+        for (BaseMessage message : incoming) {
+            if (add(message)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Appends {@code message} unless a message with its id is already stored.
+     */
+    public boolean add(final BaseMessage message) {
+        if (byId.putIfAbsent(message.getId(), message) != null) {
+            return false;
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = message;
+        if (Objects.nonNull(message.getRole())) {
+            latestByRole.put(message.getRole(), message);
+        }
+        snapshot = null;
+        return true;
+    }
+
+    public boolean contains(final String id) {
+        return byId.containsKey(id);
+    }
+
+    public Optional<BaseMessage> get(final String id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    /**
+     * The most recently appended message with {@code role}.
+     */
+    public Optional<BaseMessage> getLatest(final Role role) {
+        return Optional.ofNullable(latestByRole.get(role));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The messages in arrival order, as an immutable list. It views the messages stored so far
+     * without copying them, and later appends do not show up in it.
+     */
+    public List<BaseMessage> getMessages() {
+        if (Objects.isNull(snapshot)) {
+            snapshot = new Prefix(elements, size);
+        }
+        return snapshot;
+    }
+
+    /**
+     * The first {@code size} messages of an array whose slots below {@code size} never change.
+     */
+    private static final class Prefix extends AbstractList<BaseMessage> implements RandomAccess {
+
+        private final BaseMessage[] elements;
+        private final int size;
+
+        private Prefix(final BaseMessage[] elements, final int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        @Override
+        public BaseMessage get(final int index) {
+            Objects.checkIndex(index, size);
+            return elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
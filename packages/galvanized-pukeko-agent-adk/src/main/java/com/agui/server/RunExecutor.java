@@ -0,0 +1,114 @@
+package com.agui.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Executor that agent runs are dispatched on. Uses one virtual thread per run when the JVM
+ * supports it (JDK 21+) and falls back to a fixed pool of platform threads otherwise, so runs
+ * blocking on a model never land on the shared common pool. Tracks how many runs dispatched
+ * with {@link #executeRun} are waiting for a thread and how many are executing.
+ */
+public class RunExecutor implements Executor, AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(RunExecutor.class.getName());
+
+    private final ExecutorService delegate;
+    private final boolean virtualThreads;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    public RunExecutor(final ExecutorService delegate) {
+        this(delegate, false);
+    }
+
+    private RunExecutor(final ExecutorService delegate, final boolean virtualThreads) {
+        this.delegate = delegate;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Creates a virtual-thread-per-run executor, or a pool of {@code platformThreads} platform
+     * threads when virtual threads are not available on this JVM.
+     */
+    public static RunExecutor virtualThreads(final int platformThreads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new RunExecutor((ExecutorService) factory.invoke(null), true);
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads unavailable, running agents on " + platformThreads + " platform threads");
+            return platformThreads(platformThreads);
+        }
+    }
+
+    /**
+     * Creates an executor backed by a fixed pool of daemon platform threads.
+     */
+    public static RunExecutor platformThreads(final int threads) {
+        var counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            var thread = new Thread(runnable, "agui-run-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new RunExecutor(Executors.newFixedThreadPool(threads, threadFactory));
+    }
+
+    /**
+     * Executes {@code task} without counting it as a run, e.g. work a run schedules on this
+     * executor itself.
+     */
+    @Override
+    public void execute(final Runnable task) {
+        delegate.execute(task);
+    }
+
+    /**
+     * Dispatches an agent run. It counts as queued until a thread picks it up and as active until
+     * {@code run} completes, which for a run that streams asynchronously is well after
+     * {@code task} has returned.
+     */
+    public void executeRun(final Runnable task, final CompletableFuture<?> run) {
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                run.whenComplete((result, error) -> active.decrementAndGet());
+                task.run();
+            });
+        } catch (RuntimeException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Number of submitted runs still waiting for a thread.
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Number of runs currently executing.
+     */
+    public int getActiveRuns() {
+        return active.get();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public void close() {
+        delegate.shutdown();
+    }
+}
@@ -0,0 +1,75 @@
+package com.agui.server;
+
+import com.agui.core.event.BaseEvent;
+import com.agui.core.state.JsonPatch;
+import com.agui.core.state.State;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Remembers the state a client was last sent and turns a new state into the event that brings the
+ * client up to date: a {@code STATE_DELTA} carrying an RFC 6902 patch, or a
+ * {@code STATE_SNAPSHOT} when the patch would be larger than the state itself. States are compared
+ * in their JSON form, so values of any type diff the way the client sees them.
+ */
+public class StateTracker {
+
+    private static final Logger LOGGER = Logger.getLogger(StateTracker.class.getName());
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<>() { };
+
+    private final ObjectMapper objectMapper;
+    private Map<String, Object> baseline = new HashMap<>();
+
+    public StateTracker(final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Takes {@code state} as what the client already has, e.g. the state it sent with the run.
+     */
+    public synchronized void reset(final State state) {
+        this.baseline = toJson(state);
+    }
+
+    /**
+     * The event moving the client from the last state to {@code state}, or empty if nothing
+     * changed. {@code state} becomes the new baseline.
+     */
+    public synchronized Optional<BaseEvent> update(final State state) {
+        Map<String, Object> current = toJson(state);
+        List<Map<String, Object>> patch = JsonPatch.diff(baseline, current);
+        this.baseline = current;
+        if (patch.isEmpty()) {
+            return Optional.empty();
+        }
+        if (size(patch) > size(current)) {
+            return Optional.of(EventFactory.stateSnapshotEvent(state));
+        }
+        return Optional.of(EventFactory.stateDeltaEvent(patch));
+    }
+
+    private Map<String, Object> toJson(final State state) {
+        if (Objects.isNull(state)) {
+            return new HashMap<>();
+        }
+        return objectMapper.convertValue(state.getState(), JSON_OBJECT);
+    }
+
+    private int size(final Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value).length;
+        } catch (JsonProcessingException e) {
+            LOGGER.log(Level.FINE, "Could not size state update", e);
+            return Integer.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.agui.server;
+
+import com.agui.core.message.BaseMessage;
+import com.agui.core.message.Role;
+import com.agui.core.state.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Conversation state of one AG-UI thread: the messages seen on it and its agent state. Guarded by
+ * its own monitor, so runs on different threads never contend.
+ */
+public class ThreadState {
+
+    private final String threadId;
+    private final MessageStore messages = new MessageStore();
+    private State state;
+    private final Map<Class<?>, Object> attachments = new ConcurrentHashMap<>();
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    public ThreadState(final String threadId, final State state, final List<BaseMessage> messages) {
+        this.threadId = threadId;
+        this.state = state;
+        merge(messages);
+    }
+
+    public String getThreadId() {
+        return threadId;
+    }
+
+    /**
+     * Appends the messages whose ids have not been seen on this thread yet.
+     */
+    public synchronized void merge(final List<BaseMessage> incoming) {
+        messages.merge(incoming);
+    }
+
+    /**
+     * The thread's messages in arrival order, as an immutable list.
+     */
+    public synchronized List<BaseMessage> getMessages() {
+        return messages.getMessages();
+    }
+
+    /**
+     * The most recent message with {@code role} on this thread.
+     */
+    public synchronized Optional<BaseMessage> getLatestMessage(final Role role) {
+        return messages.getLatest(role);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized void setState(final State state) {
+        this.state = state;
+    }
+
+    /**
+     * Per-thread state kept by an agent alongside the conversation, created on first use and
+     * dropped with the thread.
+     */
+    public <T> T getAttachment(final Class<T> type, final Supplier<T> factory) {
+        return type.cast(attachments.computeIfAbsent(type, key -> factory.get()));
+    }
+
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    static State copyOf(final State state) {
+        return Objects.isNull(state) ? new State() : state.snapshot();
+    }
+}
@@ -0,0 +1,108 @@
+package com.agui.server;
+
+import com.agui.core.message.BaseMessage;
+import com.agui.core.state.State;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link ThreadState}s of a {@link LocalAgent}, keyed by thread id. Threads not used for the
+ * TTL are dropped, and when more than {@code maxThreads} are held the least recently used are
+ * evicted. Eviction runs on the calling thread, at most once per sweep interval.
+ */
+public class ThreadStateStore {
+
+    private final Duration ttl;
+    private final int maxThreads;
+    private final HistoryMode historyMode;
+    private final State initialState;
+    private final List<BaseMessage> initialMessages;
+    private final Map<String, ThreadState> threads = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepNanos;
+    private final long sweepIntervalNanos;
+
+    /**
+     * @param ttl             how long an unused thread is kept
+     * @param maxThreads      most threads held at once
+     * @param historyMode     whether the client or the server owns the history
+     * @param initialState    state a new thread starts from; copied per thread
+     * @param initialMessages messages a new thread starts with
+     */
+    public ThreadStateStore(
+        final Duration ttl,
+        final int maxThreads,
+        final HistoryMode historyMode,
+        final State initialState,
+        final List<BaseMessage> initialMessages
+    ) {
+        this.ttl = ttl;
+        this.maxThreads = maxThreads;
+        this.historyMode = historyMode;
+        this.initialState = initialState;
+        this.initialMessages = List.copyOf(initialMessages);
+        this.sweepIntervalNanos = Math.max(ttl.toNanos() / 4, 1);
+        this.nextSweepNanos = new AtomicLong(System.nanoTime() + sweepIntervalNanos);
+    }
+
+    public ThreadStateStore(final Duration ttl, final int maxThreads, final HistoryMode historyMode) {
+        this(ttl, maxThreads, historyMode, new State(), List.of());
+    }
+
+    public ThreadStateStore(final Duration ttl, final int maxThreads) {
+        this(ttl, maxThreads, HistoryMode.CLIENT);
+    }
+
+    public HistoryMode getHistoryMode() {
+        return historyMode;
+    }
+
+    /**
+     * The state of {@code threadId}, created on first use.
+     */
+    public ThreadState get(final String threadId) {
+        evictIfDue();
+        ThreadState thread = threads.computeIfAbsent(threadId,
+            id -> new ThreadState(id, ThreadState.copyOf(initialState), initialMessages));
+        thread.touch();
+        if (threads.size() > maxThreads) {
+            evictLeastRecentlyUsed();
+        }
+        return thread;
+    }
+
+    public void remove(final String threadId) {
+        threads.remove(threadId);
+    }
+
+    public int size() {
+        return threads.size();
+    }
+
+    private void evictIfDue() {
+        long now = System.nanoTime();
+        long due = nextSweepNanos.get();
+        if (now - due < 0 || !nextSweepNanos.compareAndSet(due, now + sweepIntervalNanos)) {
+            return;
+        }
+        long ttlNanos = ttl.toNanos();
+        threads.values().removeIf(thread -> now - thread.getLastAccessNanos() >= ttlNanos);
+    }
+
+    /**
+     * Drops the least recently used tenth of the threads, so a full store is not rescanned on
+     * every new thread.
+     */
+    private void evictLeastRecentlyUsed() {
+        int excess = threads.size() - maxThreads + Math.max(1, maxThreads / 10);
+        threads.values().stream()
+            .sorted(Comparator.comparingLong(ThreadState::getLastAccessNanos))
+            .limit(excess)
+            .toList()
+            .forEach(thread -> threads.remove(thread.getThreadId(), thread));
+    }
+}
@@ -0,0 +1,17 @@
+package com.agui.server.journal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the events of a {@link RunJournal}, first the replayed ones and then the live tail.
+ * Calls for one listener never overlap. Payloads are shared between listeners: read them with
+ * absolute accessors or through {@link ByteBuffer#duplicate()}.
+ */
+public interface JournalListener {
+
+    void onEvent(long id, ByteBuffer payload);
+
+    void onComplete();
+
+    void onError(Throwable error);
+}
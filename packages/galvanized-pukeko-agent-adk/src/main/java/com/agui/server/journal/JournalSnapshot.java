@@ -0,0 +1,24 @@
+package com.agui.server.journal;
+
+import com.agui.json.EventEncoding;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Point-in-time copy of a {@link RunJournal}: the state of the run and the events taken from it.
+ *
+ * @param error       message of the failure that ended the run, or {@code null}
+ * @param lastEventId id of the newest event journaled so far
+ */
+public record JournalSnapshot(
+    String runId,
+    EventEncoding encoding,
+    boolean finished,
+    String error,
+    long lastEventId,
+    List<Entry> entries
+) {
+
+    public record Entry(long id, ByteBuffer payload) { }
+}
@@ -0,0 +1,312 @@
+package com.agui.server.journal;
+
+import com.agui.json.EventEncoding;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Logger;
+
+/**
+ * The most recent serialized events of one run, kept in a ring buffer so that a client that lost
+ * its connection can reattach and pick up after the last event id it saw. Ids start at 1 and
+ * increase by one per event. Payloads are kept as handed in and must not be modified afterwards.
+ */
+public class RunJournal {
+
+    private final String runId;
+    private final EventEncoding encoding;
+    private final long[] ids;
+    private final ByteBuffer[] payloads;
+    private final Object lock = new Object();
+    private final List<Attachment> listeners = new ArrayList<>();
+
+    private final Logger logger = Logger.getLogger(RunJournal.class.getName());
+
+    private int head = 0;
+    private int size = 0;
+    private long lastId = 0;
+    private boolean finished = false;
+    private Throwable error;
+    private long lastActivityNanos = System.nanoTime();
+    private Runnable canceller;
+    private boolean detached = false;
+
+    public RunJournal(final String runId, final EventEncoding encoding, final int capacity) {
+        this.runId = runId;
+        this.encoding = encoding;
+        this.ids = new long[capacity];
+        this.payloads = new ByteBuffer[capacity];
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    /**
+     * Encoding the payloads were serialized in.
+     */
+    public EventEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Stores the next event of the run and passes it on to the attached listeners.
+     *
+     * @return the id assigned to the event
+     */
+    public long append(final ByteBuffer payload) {
+        long id;
+        List<Attachment> targets;
+        synchronized (lock) {
+            if (finished) {
+                return lastId;
+            }
+            id = ++lastId;
+            int slot = (head + size) % ids.length;
+            if (size == ids.length) {
+                head = (head + 1) % ids.length;
+            } else {
+                size++;
+            }
+            ids[slot] = id;
+            payloads[slot] = payload;
+            lastActivityNanos = System.nanoTime();
+            targets = List.copyOf(listeners);
+        }
+        for (Attachment target : targets) {
+            target.deliver(() -> target.listener.onEvent(id, payload));
+        }
+        return id;
+    }
+
+    public void complete() {
+        finish(null);
+    }
+
+    public void error(final Throwable error) {
+        finish(Objects.requireNonNull(error));
+    }
+
+    /**
+     * Replays the journaled events after {@code lastEventId} to {@code listener} and then keeps it
+     * attached to the live tail until it is detached or the run ends. If events after
+     * {@code lastEventId} have already been overwritten, the replay starts at the oldest one kept.
+     */
+    public void attach(final long lastEventId, final JournalListener listener) {
+        // The slice is taken and the listener registered in one step, so live events appended
+        // from here on queue up behind the replay, which is sent outside the lock
+        var attachment = new Attachment(listener);
+        List<JournalSnapshot.Entry> replay;
+        boolean ended;
+        synchronized (lock) {
+            if (size > 0 && lastEventId + 1 < ids[head]) {
+                logger.warning("Run " + runId + " journal no longer holds events "
+                    + (lastEventId + 1) + " to " + (ids[head] - 1));
+            }
+            replay = entriesAfter(lastEventId);
+            lastActivityNanos = System.nanoTime();
+            ended = finished;
+            if (!ended) {
+                listeners.add(attachment);
+            }
+        }
+        try {
+            for (JournalSnapshot.Entry entry : replay) {
+                listener.onEvent(entry.id(), entry.payload());
+            }
+        } catch (Exception e) {
+            logger.severe("Error in journal listener of run " + runId + ": " + e.getMessage());
+        }
+        if (ended) {
+            signalEnd(listener);
+        } else {
+            attachment.goLive();
+        }
+    }
+
+    /**
+     * Stops sending events to {@code listener}.
+     *
+     * @return the number of listeners still attached
+     */
+    public int detach(final JournalListener listener) {
+        synchronized (lock) {
+            listeners.removeIf(attachment -> attachment.listener == listener);
+            lastActivityNanos = System.nanoTime();
+            return listeners.size();
+        }
+    }
+
+    /**
+     * Action that cancels the run producing this journal.
+     */
+    public void setCanceller(final Runnable canceller) {
+        synchronized (lock) {
+            this.canceller = canceller;
+        }
+    }
+
+    /**
+     * Cancels the run if it is still going and nobody is attached. The journal is closed with a
+     * {@link CancellationException}, which clients attaching later receive after the replay.
+     */
+    public void cancelIfUnattended() {
+        Runnable cancel;
+        synchronized (lock) {
+            if (finished || detached || !listeners.isEmpty() || Objects.isNull(canceller)) {
+                return;
+            }
+            cancel = canceller;
+        }
+        logger.info("No client attached to run " + runId + ", cancelling it");
+        cancel.run();
+        finish(new CancellationException("Run " + runId + " was cancelled with no client attached"));
+    }
+
+    /**
+     * Marks the run as running in the background, so it is not cancelled when nobody is attached.
+     */
+    public void setDetached(final boolean detached) {
+        synchronized (lock) {
+            this.detached = detached;
+        }
+    }
+
+    public boolean isDetached() {
+        synchronized (lock) {
+            return detached;
+        }
+    }
+
+    /**
+     * The journaled events after {@code lastEventId} and the state of the run, without attaching.
+     */
+    public JournalSnapshot snapshot(final long lastEventId) {
+        synchronized (lock) {
+            List<JournalSnapshot.Entry> entries = entriesAfter(lastEventId);
+            lastActivityNanos = System.nanoTime();
+            return new JournalSnapshot(runId, encoding, finished,
+                Objects.isNull(error) ? null : error.getMessage(), lastId, entries);
+        }
+    }
+
+    /**
+     * Copies out the entries after {@code lastEventId}; called with the lock held.
+     */
+    private List<JournalSnapshot.Entry> entriesAfter(final long lastEventId) {
+        List<JournalSnapshot.Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % ids.length;
+            if (ids[slot] > lastEventId) {
+                entries.add(new JournalSnapshot.Entry(ids[slot], payloads[slot]));
+            }
+        }
+        return entries;
+    }
+
+    public boolean isFinished() {
+        synchronized (lock) {
+            return finished;
+        }
+    }
+
+    public long getLastId() {
+        synchronized (lock) {
+            return lastId;
+        }
+    }
+
+    /**
+     * Whether nothing has been appended and no client has attached or detached for
+     * {@code idleNanos}.
+     */
+    boolean isIdleFor(final long idleNanos, final long nowNanos) {
+        synchronized (lock) {
+            return nowNanos - lastActivityNanos >= idleNanos;
+        }
+    }
+
+    private void finish(final Throwable failure) {
+        List<Attachment> targets;
+        synchronized (lock) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            error = failure;
+            lastActivityNanos = System.nanoTime();
+            targets = List.copyOf(listeners);
+            listeners.clear();
+        }
+        for (Attachment target : targets) {
+            target.deliver(() -> signalEnd(target.listener));
+        }
+    }
+
+    /**
+     * A listener and the live calls held back for it while its replay is being sent.
+     */
+    private final class Attachment {
+
+        private final JournalListener listener;
+        private ArrayDeque<Runnable> backlog = new ArrayDeque<>();
+
+        private Attachment(final JournalListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Runs {@code call} now, or queues it behind the replay if that is still being sent.
+         */
+        private void deliver(final Runnable call) {
+            synchronized (this) {
+                if (Objects.nonNull(backlog)) {
+                    backlog.add(call);
+                    return;
+                }
+            }
+            run(call);
+        }
+
+        /**
+         * Sends the calls queued during the replay, then lets later ones through directly.
+         */
+        private void goLive() {
+            while (true) {
+                Runnable call;
+                synchronized (this) {
+                    call = backlog.poll();
+                    if (Objects.isNull(call)) {
+                        backlog = null;
+                        return;
+                    }
+                }
+                run(call);
+            }
+        }
+
+        private void run(final Runnable call) {
+            try {
+                call.run();
+            } catch (Exception e) {
+                logger.severe("Error in journal listener of run " + runId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void signalEnd(final JournalListener listener) {
+        try {
+            if (Objects.nonNull(error)) {
+                listener.onError(error);
+            } else {
+                listener.onComplete();
+            }
+        } catch (Exception e) {
+            logger.severe("Error in journal listener of run " + runId + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.agui.server.journal;
+
+import com.agui.json.EventEncoding;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The journals of recent runs by run id. A journal is dropped once it has been idle for the TTL.
+ * A run whose last client detaches is cancelled unless a client reattaches within the grace period.
+ *
+ * <p>Runs can also be registered under a dedupe key describing the request, so that an identical
+ * request arriving while the run is still going joins it instead of starting the agent again.
+ */
+public class RunJournals {
+
+    private final int capacity;
+    private final Duration ttl;
+    private final Duration detachGrace;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, RunJournal> journals = new ConcurrentHashMap<>();
+    private final Map<String, RunJournal> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity    events kept per run
+     * @param ttl         how long an idle journal is kept
+     * @param detachGrace how long a run keeps going with no client attached
+     * @param scheduler   shared scheduler for expiry and grace timers
+     */
+    public RunJournals(
+        final int capacity,
+        final Duration ttl,
+        final Duration detachGrace,
+        final ScheduledExecutorService scheduler
+    ) {
+        this.capacity = capacity;
+        this.ttl = ttl;
+        this.detachGrace = detachGrace;
+        this.scheduler = scheduler;
+        long sweepNanos = Math.max(ttl.toNanos() / 2, TimeUnit.SECONDS.toNanos(1));
+        scheduler.scheduleWithFixedDelay(this::evictExpired, sweepNanos, sweepNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates the journal of a new run.
+     *
+     * @return the new journal, or empty if a journal for {@code runId} already exists
+     */
+    public Optional<RunJournal> create(final String runId, final EventEncoding encoding) {
+        return create(runId, null, encoding);
+    }
+
+    /**
+     * Creates the journal of a new run, registered under {@code dedupeKey} while it is in flight.
+     *
+     * @param dedupeKey key shared by identical requests, or {@code null} to never deduplicate
+     * @return the new journal, or empty if a journal for {@code runId} already exists or an
+     *         unfinished run holds {@code dedupeKey}; {@link #find} returns that journal
+     */
+    public synchronized Optional<RunJournal> create(final String runId, final String dedupeKey, final EventEncoding encoding) {
+        if (journals.containsKey(runId)) {
+            return Optional.empty();
+        }
+        if (Objects.nonNull(dedupeKey)) {
+            RunJournal running = inFlight.get(dedupeKey);
+            if (Objects.nonNull(running) && !running.isFinished()) {
+                return Optional.empty();
+            }
+        }
+        var journal = new RunJournal(runId, encoding, capacity);
+        journals.put(runId, journal);
+        if (Objects.nonNull(dedupeKey)) {
+            inFlight.put(dedupeKey, journal);
+        }
+        return Optional.of(journal);
+    }
+
+    public Optional<RunJournal> get(final String runId) {
+        return Optional.ofNullable(journals.get(runId));
+    }
+
+    /**
+     * The journal for {@code runId}, or else the run registered under {@code dedupeKey}.
+     */
+    public synchronized Optional<RunJournal> find(final String runId, final String dedupeKey) {
+        RunJournal journal = journals.get(runId);
+        if (Objects.isNull(journal) && Objects.nonNull(dedupeKey)) {
+            journal = inFlight.get(dedupeKey);
+        }
+        return Optional.ofNullable(journal);
+    }
+
+    /**
+     * Detaches {@code listener} and, if it was the last one, schedules the run's cancellation
+     * for when the grace period runs out with nobody attached. A zero grace period cancels it
+     * right away.
+     */
+    public void detach(final RunJournal journal, final JournalListener listener) {
+        if (journal.detach(listener) == 0 && !journal.isFinished() && !journal.isDetached()) {
+            if (detachGrace.isZero()) {
+                journal.cancelIfUnattended();
+            } else {
+                scheduler.schedule(journal::cancelIfUnattended, detachGrace.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    public int size() {
+        return journals.size();
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        long idleNanos = ttl.toNanos();
+        journals.values().removeIf(journal -> journal.isIdleFor(idleNanos, now) && journal.isFinished());
+        synchronized (this) {
+            inFlight.values().removeIf(RunJournal::isFinished);
+        }
+    }
+}
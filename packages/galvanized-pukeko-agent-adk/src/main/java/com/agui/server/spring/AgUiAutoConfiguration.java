@@ -2,6 +2,7 @@
 package com.agui.server.spring;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.agui.json.EventWriters;
 import com.agui.json.ObjectMapperFactory;
 import com.agui.server.streamer.AgentStreamer;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
@@ -26,6 +27,12 @@ public class AgUiAutoConfiguration {
         return new AgUiService(agentStreamer, objectMapper);
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    public AgUiEventHttpMessageConverter agUiEventHttpMessageConverter(ObjectMapper objectMapper) {
+        return new AgUiEventHttpMessageConverter(new EventWriters(objectMapper));
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public ObjectMapper objectMapper() {
@@ -0,0 +1,57 @@
+package com.agui.server.spring;
+
+import com.agui.core.event.BaseEvent;
+import com.agui.json.EncodedEvent;
+import com.agui.json.EventEncoding;
+import com.agui.json.EventWriters;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes AG-UI events sent through an {@code SseEmitter} directly into the response stream,
+ * without building an intermediate JSON string per event. A plain {@link BaseEvent} is written as
+ * JSON, an {@link EncodedEvent} in its own encoding, and a {@link ByteBuffer} holding an event
+ * that is already encoded, such as a journaled one, as it is.
+ */
+public class AgUiEventHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private final EventWriters eventWriters;
+
+    public AgUiEventHttpMessageConverter(final EventWriters eventWriters) {
+        super(MediaType.APPLICATION_JSON, MediaType.parseMediaType(EventEncoding.COMPACT_JSON.getMediaType()));
+        this.eventWriters = eventWriters;
+    }
+
+    @Override
+    protected boolean supports(final Class<?> clazz) {
+        return BaseEvent.class.isAssignableFrom(clazz) || EncodedEvent.class.isAssignableFrom(clazz)
+            || ByteBuffer.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(final MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(final Class<?> clazz, final HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("AG-UI events are write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(final Object event, final HttpOutputMessage outputMessage) throws IOException {
+        if (event instanceof ByteBuffer payload) {
+            outputMessage.getBody().write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        } else if (event instanceof EncodedEvent encoded) {
+            eventWriters.write(encoded.encoding(), encoded.event(), outputMessage.getBody());
+        } else {
+            eventWriters.write((BaseEvent) event, outputMessage.getBody());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.agui.server.spring;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.web.server.PayloadTooLargeException;
+
+import java.io.IOException;
+
+/**
+ * Binds {@code @RequestBody AgUiParameters} with an {@link AgUiParametersReader}, so run requests
+ * are parsed as a stream under its size limits. An oversized body is answered with
+ * {@code 413 Payload Too Large}, judged from {@code Content-Length} when the client sends one.
+ */
+public class AgUiParametersHttpMessageConverter extends AbstractHttpMessageConverter<AgUiParameters> {
+
+    private final AgUiParametersReader reader;
+
+    public AgUiParametersHttpMessageConverter(final AgUiParametersReader reader) {
+        super(MediaType.APPLICATION_JSON);
+        this.reader = reader;
+    }
+
+    @Override
+    protected boolean supports(final Class<?> clazz) {
+        return AgUiParameters.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canWrite(final MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected AgUiParameters readInternal(
+        final Class<? extends AgUiParameters> clazz,
+        final HttpInputMessage inputMessage
+    ) throws IOException {
+        long maxBytes = reader.getMaxBytes();
+        if (maxBytes > 0 && inputMessage.getHeaders().getContentLength() > maxBytes) {
+            throw new PayloadTooLargeException(new AgUiParametersReader.RequestTooLargeException(maxBytes));
+        }
+        try {
+            return reader.read(inputMessage.getBody());
+        } catch (AgUiParametersReader.RequestTooLargeException e) {
+            throw new PayloadTooLargeException(e);
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Invalid run input: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(final AgUiParameters parameters, final HttpOutputMessage outputMessage) {
+        throw new HttpMessageNotWritableException("Run input is read-only");
+    }
+}
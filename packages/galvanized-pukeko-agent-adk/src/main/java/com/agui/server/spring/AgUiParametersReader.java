@@ -0,0 +1,189 @@
+package com.agui.server.spring;
+
+import com.agui.core.context.Context;
+import com.agui.core.message.BaseMessage;
+import com.agui.core.state.State;
+import com.agui.core.tool.Tool;
+import com.agui.json.ObjectMapperFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Reads a run request token by token instead of binding the whole body. Only the newest
+ * {@code maxMessages} messages are deserialized; older ones are held as raw tokens until they fall
+ * out of the window and are then dropped. {@code tools} and {@code context} can be skipped without
+ * being materialized, and a body larger than {@code maxBytes} is rejected as soon as the limit is
+ * crossed.
+ */
+public class AgUiParametersReader {
+
+    private static final TypeReference<List<Tool>> TOOLS = new TypeReference<>() { };
+    private static final TypeReference<List<Context>> CONTEXT = new TypeReference<>() { };
+
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final int maxMessages;
+    private final boolean skipTools;
+    private final boolean skipContext;
+
+    /**
+     * @param maxBytes    largest accepted body; zero disables the limit
+     * @param maxMessages newest messages kept; zero keeps all
+     * @param skipTools   leave {@code tools} unread
+     * @param skipContext leave {@code context} unread
+     */
+    public AgUiParametersReader(
+        final ObjectMapper objectMapper,
+        final long maxBytes,
+        final int maxMessages,
+        final boolean skipTools,
+        final boolean skipContext
+    ) {
+        ObjectMapperFactory.addMixins(objectMapper);
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        this.maxMessages = maxMessages;
+        this.skipTools = skipTools;
+        this.skipContext = skipContext;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public AgUiParameters read(final InputStream body) throws IOException {
+        InputStream input = maxBytes > 0 ? new LimitedInputStream(body, maxBytes) : body;
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            return read(parser);
+        }
+    }
+
+    /**
+     * Reads the request object starting at the parser's next token.
+     */
+    public AgUiParameters read(final JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Run input must be a JSON object");
+        }
+        var params = new AgUiParameters();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "threadId" -> params.setThreadId(parser.getValueAsString());
+                case "runId" -> params.setRunId(parser.getValueAsString());
+                case "state" -> params.setState(objectMapper.readValue(parser, State.class));
+                case "messages" -> params.setMessages(readMessages(parser));
+                case "forwardedProps" -> params.setForwardedProps(objectMapper.readValue(parser, Object.class));
+                case "tools" -> {
+                    if (skipTools) {
+                        parser.skipChildren();
+                    } else {
+                        params.setTools(objectMapper.readValue(parser, TOOLS));
+                    }
+                }
+                case "context" -> {
+                    if (skipContext) {
+                        parser.skipChildren();
+                    } else {
+                        params.setContext(objectMapper.readValue(parser, CONTEXT));
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return params;
+    }
+
+    private List<BaseMessage> readMessages(final JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("messages must be an array");
+        }
+        if (maxMessages <= 0) {
+            List<BaseMessage> messages = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                messages.add(objectMapper.readValue(parser, BaseMessage.class));
+            }
+            return messages;
+        }
+        Deque<TokenBuffer> window = new ArrayDeque<>(maxMessages);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (window.size() == maxMessages) {
+                window.removeFirst();
+            }
+            var buffer = new TokenBuffer(parser);
+            buffer.copyCurrentStructure(parser);
+            window.addLast(buffer);
+        }
+        List<BaseMessage> messages = new ArrayList<>(window.size());
+        for (TokenBuffer buffer : window) {
+            try (JsonParser messageParser = buffer.asParser(objectMapper)) {
+                messages.add(objectMapper.readValue(messageParser, BaseMessage.class));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Thrown when a request body exceeds the configured size.
+     */
+    public static class RequestTooLargeException extends IOException {
+
+        public RequestTooLargeException(final long maxBytes) {
+            super("Run input exceeds " + maxBytes + " bytes");
+        }
+    }
+
+    /**
+     * Fails the read as soon as more than {@code maxBytes} have been consumed.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private final long maxBytes;
+        private long count;
+
+        private LimitedInputStream(final InputStream in, final long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(final int n) throws IOException {
+            count += n;
+            if (count > maxBytes) {
+                throw new RequestTooLargeException(maxBytes);
+            }
+        }
+    }
+}
@@ -4,30 +4,410 @@ package com.agui.server.spring;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.agui.core.agent.RunAgentParameters;
 import com.agui.core.event.BaseEvent;
+import com.agui.core.stream.BufferedEventStream;
+import com.agui.core.stream.CoalescingEventStream;
 import com.agui.core.stream.EventStream;
+import com.agui.core.stream.IEventStream;
+import com.agui.core.stream.SerializedEventStream;
+import com.agui.json.EncodedEvent;
+import com.agui.json.EventEncoding;
+import com.agui.json.EventWriters;
 import com.agui.json.ObjectMapperFactory;
 import com.agui.server.LocalAgent;
+import com.agui.server.journal.JournalListener;
+import com.agui.server.journal.JournalSnapshot;
+import com.agui.server.journal.RunJournal;
 import com.agui.server.streamer.AgentStreamer;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 public class AgUiService {
 
     private final AgentStreamer agentStreamer;
     private final ObjectMapper objectMapper;
+    private final AgUiStreamOptions options;
+    private final EventWriters eventWriters;
 
     public AgUiService(
         final AgentStreamer agentStreamer,
         final ObjectMapper objectMapper
+    ) {
+        this(agentStreamer, objectMapper, AgUiStreamOptions.defaults());
+    }
+
+    public AgUiService(
+        final AgentStreamer agentStreamer,
+        final ObjectMapper objectMapper,
+        final AgUiStreamOptions options
     ) {
         this.agentStreamer = agentStreamer;
         this.objectMapper = objectMapper;
+        this.options = options;
         ObjectMapperFactory.addMixins(this.objectMapper);
+        this.eventWriters = new EventWriters(this.objectMapper);
     }
 
     public SseEmitter runAgent(final LocalAgent agent, final AgUiParameters agUiParameters) {
-        var parameters = RunAgentParameters.builder()
+        return runAgent(agent, agUiParameters, EventEncoding.JSON);
+    }
+
+    /**
+     * Runs the agent over SSE with events written in {@code encoding}, which must be text-based.
+     */
+    public SseEmitter runAgent(final LocalAgent agent, final AgUiParameters agUiParameters, final EventEncoding encoding) {
+        requireText(encoding);
+        if (options.isJournaling()) {
+            return runJournaled(agent, agUiParameters, encoding);
+        }
+        var parameters = toParameters(agUiParameters);
+        var mediaType = MediaType.parseMediaType(encoding.getMediaType());
+
+        var finished = new AtomicBoolean();
+        SseEmitter emitter = newEmitter(() -> !finished.get());
+
+        Consumer<BaseEvent> send = event -> {
+            try {
+                // Serialized straight into the response by AgUiEventHttpMessageConverter
+                emitter.send(SseEmitter.event().data(payload(event, encoding), mediaType));
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        };
+        var eventStream = decorate(newStream(
+            send,
+            error -> {
+                finished.set(true);
+                emitter.completeWithError(error);
+            },
+            () -> {
+                finished.set(true);
+                emitter.complete();
+            }
+        ));
+
+        // A closed tab, timeout or broken connection cancels the stream, which stops the run
+        emitter.onCompletion(eventStream::cancel);
+        emitter.onTimeout(eventStream::cancel);
+        emitter.onError(error -> eventStream.cancel());
+
+        this.agentStreamer.streamEvents(agent, parameters, eventStream);
+
+        return emitter;
+    }
+
+    /**
+     * Reattaches to a journaled run, replaying the events after {@code lastEventId} before
+     * following the live tail.
+     *
+     * @return the emitter, or empty if there is no journal for {@code runId}
+     */
+    public Optional<SseEmitter> resume(final String runId, final long lastEventId) {
+        if (!options.isJournaling()) {
+            return Optional.empty();
+        }
+        return options.getJournals().get(runId).map(journal -> attach(journal, lastEventId));
+    }
+
+    /**
+     * Runs the agent with its events recorded in a journal, so the client can drop the connection
+     * and resume it. The run keeps going while no client is attached until the journals' grace
+     * period runs out. A request for a run id that is already journaled attaches to that run.
+     */
+    private SseEmitter runJournaled(final LocalAgent agent, final AgUiParameters agUiParameters, final EventEncoding encoding) {
+        return attach(startJournaled(agent, agUiParameters, encoding, false), 0);
+    }
+
+    /**
+     * Starts a run in the background. Its events are only journaled; clients follow them with
+     * {@link #resume} or poll them with {@link #fetch}, and the run is not cancelled while nobody
+     * is attached.
+     *
+     * @return the run id
+     * @throws IllegalStateException if journaling is disabled
+     */
+    public String startDetached(final LocalAgent agent, final AgUiParameters agUiParameters, final EventEncoding encoding) {
+        requireText(encoding);
+        if (!options.isJournaling()) {
+            throw new IllegalStateException("Detached runs need the run journal to be enabled");
+        }
+        return startJournaled(agent, agUiParameters, encoding, true).getRunId();
+    }
+
+    /**
+     * The journaled events of a run after {@code lastEventId}, without attaching to it.
+     *
+     * @return the snapshot, or empty if there is no journal for {@code runId}
+     */
+    public Optional<JournalSnapshot> fetch(final String runId, final long lastEventId) {
+        if (!options.isJournaling()) {
+            return Optional.empty();
+        }
+        return options.getJournals().get(runId).map(journal -> journal.snapshot(lastEventId));
+    }
+
+    private RunJournal startJournaled(
+        final LocalAgent agent,
+        final AgUiParameters agUiParameters,
+        final EventEncoding encoding,
+        final boolean detached
+    ) {
+        if (Objects.isNull(agUiParameters.getRunId())) {
+            agUiParameters.setRunId(UUID.randomUUID().toString());
+        }
+        var journals = options.getJournals();
+        var dedupeKey = options.isDeduplicating() ? dedupeKey(agUiParameters) : null;
+        var created = journals.create(agUiParameters.getRunId(), dedupeKey, encoding);
+        if (created.isEmpty()) {
+            // A resubmitted or identical concurrent request joins the run already producing its answer
+            var existing = journals.find(agUiParameters.getRunId(), dedupeKey);
+            if (existing.isEmpty()) {
+                return startJournaled(agent, agUiParameters, encoding, detached);
+            }
+            if (detached) {
+                existing.get().setDetached(true);
+            }
+            return existing.get();
+        }
+        var journal = created.get();
+        journal.setDetached(detached);
+
+        var eventStream = decorate(newStream(
+            event -> journal.append(serialize(event, encoding)),
+            journal::error,
+            journal::complete
+        ));
+        journal.setCanceller(eventStream::cancel);
+
+        this.agentStreamer.streamEvents(agent, toParameters(agUiParameters), eventStream);
+        return journal;
+    }
+
+    /**
+     * Opens an SSE response following {@code journal}; closing it only detaches from the run.
+     */
+    private SseEmitter attach(final RunJournal journal, final long lastEventId) {
+        SseEmitter emitter = newEmitter(() -> !journal.isFinished());
+        var mediaType = MediaType.parseMediaType(journal.getEncoding().getMediaType());
+        var listener = new JournalListener() {
+            @Override
+            public void onEvent(long id, ByteBuffer payload) {
+                try {
+                    emitter.send(SseEmitter.event().id(Long.toString(id)).data(payload, mediaType));
+                } catch (IOException e) {
+                    emitter.completeWithError(e);
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                emitter.complete();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                emitter.completeWithError(error);
+            }
+        };
+        Runnable detach = () -> options.getJournals().detach(journal, listener);
+        emitter.onCompletion(detach);
+        emitter.onTimeout(detach);
+        emitter.onError(error -> detach.run());
+
+        journal.attach(lastEventId, listener);
+        return emitter;
+    }
+
+    /**
+     * Key under which identical requests share a run: the thread and a digest of the messages
+     * sent, or {@code null} if the request has no thread.
+     */
+    private String dedupeKey(final AgUiParameters agUiParameters) {
+        if (Objects.isNull(agUiParameters.getThreadId())) {
+            return null;
+        }
+        try {
+            var digest = MessageDigest.getInstance("SHA-256")
+                .digest(objectMapper.writeValueAsBytes(agUiParameters.getMessages()));
+            return agUiParameters.getThreadId() + ":" + HexFormat.of().formatHex(digest);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Encodes an event for the journal, which keeps the encoder's buffer instead of a trimmed copy.
+     */
+    private ByteBuffer serialize(final BaseEvent event, final EventEncoding encoding) {
+        var bytes = new PayloadBuffer();
+        try {
+            eventWriters.write(encoding, event, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteBuffer();
+    }
+
+    /**
+     * Runs the agent and hands its events to the given callbacks, for transports that manage their
+     * own connection. The returned stream is cancelled to stop the run.
+     */
+    public IEventStream<BaseEvent> runAgent(
+        final LocalAgent agent,
+        final AgUiParameters agUiParameters,
+        final Consumer<BaseEvent> onNext,
+        final Consumer<Throwable> onError,
+        final Runnable onComplete
+    ) {
+        var eventStream = decorate(newStream(onNext, onError, onComplete));
+
+        this.agentStreamer.streamEvents(agent, toParameters(agUiParameters), eventStream);
+
+        return eventStream;
+    }
+
+    /**
+     * Runs the agent and exposes its events as a {@link Flux} of server-sent events. The run only
+     * emits as many events as the response subscriber has requested: the producing thread parks
+     * until there is demand, which holds up the agent's upstream stream in turn. Cancelling the
+     * subscription cancels the run.
+     */
+    public Flux<ServerSentEvent<Object>> runAgentFlux(
+        final LocalAgent agent,
+        final AgUiParameters agUiParameters,
+        final EventEncoding encoding
+    ) {
+        requireText(encoding);
+        var parameters = toParameters(agUiParameters);
+
+        return Flux.<BaseEvent>create(sink -> {
+                var demand = new Demand();
+                var eventStream = decorate(newStream(
+                    event -> {
+                        if (demand.take()) {
+                            sink.next(event);
+                        }
+                    },
+                    sink::error,
+                    sink::complete
+                ));
+                sink.onRequest(demand::add);
+                // Wake a producer parked on demand first: it may hold the stream's lock that cancel needs
+                sink.onCancel(() -> {
+                    demand.close();
+                    eventStream.cancel();
+                });
+                this.agentStreamer.streamEvents(agent, parameters, eventStream);
+            })
+            .map(event -> ServerSentEvent.builder(payload(event, encoding)).build());
+    }
+
+    /**
+     * Events the subscriber of a reactive run has requested and not yet received. Uses a
+     * {@link ReentrantLock} rather than a monitor so a parked virtual thread does not pin its
+     * carrier.
+     */
+    private static final class Demand {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+        private long requested;
+        private boolean closed;
+
+        void add(final long n) {
+            lock.lock();
+            try {
+                requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Waits for demand and consumes one unit of it.
+         *
+         * @return {@code false} if the subscription ended instead
+         */
+        boolean take() {
+            lock.lock();
+            try {
+                while (requested == 0 && !closed) {
+                    available.await();
+                }
+                if (closed) {
+                    return false;
+                }
+                if (requested != Long.MAX_VALUE) {
+                    requested--;
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Output stream whose buffer is handed over as it is. It starts at a size that holds a typical
+     * event; a buffer that had to grow is at most twice the size of the event it holds.
+     */
+    private static final class PayloadBuffer extends ByteArrayOutputStream {
+
+        PayloadBuffer() {
+            super(256);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    /**
+     * What to hand to the message converters so the event is written in {@code encoding}.
+     */
+    private static Object payload(final BaseEvent event, final EventEncoding encoding) {
+        return encoding == EventEncoding.JSON ? event : new EncodedEvent(event, encoding);
+    }
+
+    private static void requireText(final EventEncoding encoding) {
+        if (encoding.isBinary()) {
+            throw new IllegalArgumentException("Binary encoding " + encoding.getName() + " cannot be sent over SSE");
+        }
+    }
+
+    private RunAgentParameters toParameters(final AgUiParameters agUiParameters) {
+        return RunAgentParameters.builder()
             .threadId(agUiParameters.getThreadId())
             .runId(agUiParameters.getRunId())
             .messages(agUiParameters.getMessages())
@@ -36,23 +416,47 @@ public class AgUiService {
             .forwardedProps(agUiParameters.getForwardedProps())
             .state(agUiParameters.getState())
             .build();
+    }
 
-        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
-
-        var eventStream = new EventStream<BaseEvent>(
-            event -> {
-                try {
-                    emitter.send(SseEmitter.event().data(" " + objectMapper.writeValueAsString(event)).build());
-                } catch (IOException e) {
-                    emitter.completeWithError(e);
-                }
-            },
-            emitter::completeWithError,
-            emitter::complete
-        );
+    private SseEmitter newEmitter(final BooleanSupplier runActive) {
+        return Objects.nonNull(options.getEmitters())
+            ? options.getEmitters().open(runActive)
+            : new SseEmitter(Long.MAX_VALUE);
+    }
 
-        this.agentStreamer.streamEvents(agent, parameters, eventStream);
+    private IEventStream<BaseEvent> newStream(
+        final Consumer<BaseEvent> onNext,
+        final Consumer<Throwable> onError,
+        final Runnable onComplete
+    ) {
+        return options.isSerialized()
+            ? new SerializedEventStream<>(onNext, onError, onComplete)
+            : new EventStream<>(onNext, onError, onComplete);
+    }
 
-        return emitter;
+    /**
+     * Wraps the stream writing to the client with the stages enabled in the options. Coalescing
+     * runs ahead of the buffer so that merged deltas take up a single slot.
+     */
+    private IEventStream<BaseEvent> decorate(IEventStream<BaseEvent> eventStream) {
+        if (options.isBuffered()) {
+            eventStream = new BufferedEventStream(
+                eventStream,
+                options.getBufferCapacity(),
+                options.getOverflowPolicy(),
+                options.getWriterExecutor(),
+                options.getBufferMetrics()
+            );
+        }
+        if (!options.isCoalescing()) {
+            return eventStream;
+        }
+        return new CoalescingEventStream(
+            eventStream,
+            options.getCoalesceWindow(),
+            options.getCoalesceMaxBytes(),
+            options.getScheduler(),
+            options.getWriterExecutor()
+        );
     }
 }
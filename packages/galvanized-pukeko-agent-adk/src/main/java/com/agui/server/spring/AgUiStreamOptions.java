@@ -0,0 +1,227 @@
+package com.agui.server.spring;
+
+import com.agui.core.stream.OverflowPolicy;
+import com.agui.core.stream.StreamBufferMetrics;
+import com.agui.server.journal.RunJournals;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Tuning for the event streams {@link AgUiService} opens per run.
+ */
+public class AgUiStreamOptions {
+
+    private final Duration coalesceWindow;
+    private final int coalesceMaxBytes;
+    private final ScheduledExecutorService scheduler;
+    private final int bufferCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Executor writerExecutor;
+    private final StreamBufferMetrics bufferMetrics;
+    private final boolean serialized;
+    private final RunJournals journals;
+    private final boolean deduplicating;
+    private final SseEmitterRegistry emitters;
+
+    private AgUiStreamOptions(Builder builder) {
+        this.coalesceWindow = builder.coalesceWindow;
+        this.coalesceMaxBytes = builder.coalesceMaxBytes;
+        this.scheduler = builder.scheduler;
+        this.bufferCapacity = builder.bufferCapacity;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.writerExecutor = builder.writerExecutor;
+        this.bufferMetrics = builder.bufferMetrics;
+        this.serialized = builder.serialized;
+        this.journals = builder.journals;
+        this.deduplicating = builder.deduplicating;
+        this.emitters = builder.emitters;
+    }
+
+    /**
+     * Whether consecutive text deltas are merged before they are sent.
+     */
+    public boolean isCoalescing() {
+        return Objects.nonNull(coalesceWindow) && !coalesceWindow.isZero()
+            && Objects.nonNull(scheduler) && Objects.nonNull(writerExecutor);
+    }
+
+    public Duration getCoalesceWindow() {
+        return coalesceWindow;
+    }
+
+    public int getCoalesceMaxBytes() {
+        return coalesceMaxBytes;
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Whether events are queued in a bounded buffer and written to the client off the run thread.
+     */
+    public boolean isBuffered() {
+        return bufferCapacity > 0 && Objects.nonNull(writerExecutor);
+    }
+
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public Executor getWriterExecutor() {
+        return writerExecutor;
+    }
+
+    public StreamBufferMetrics getBufferMetrics() {
+        return bufferMetrics;
+    }
+
+    /**
+     * Whether the stream writing to the client is a lock-free {@code SerializedEventStream}
+     * instead of the lock-based {@code EventStream}.
+     */
+    public boolean isSerialized() {
+        return serialized;
+    }
+
+    /**
+     * Whether SSE runs are recorded in journals so clients can resume them.
+     */
+    public boolean isJournaling() {
+        return Objects.nonNull(journals);
+    }
+
+    public RunJournals getJournals() {
+        return journals;
+    }
+
+    /**
+     * Whether an identical request for a thread joins its in-flight journaled run.
+     */
+    public boolean isDeduplicating() {
+        return isJournaling() && deduplicating;
+    }
+
+    /**
+     * Registry the SSE emitters are opened from, or {@code null} for untracked emitters without
+     * heartbeats or limits.
+     */
+    public SseEmitterRegistry getEmitters() {
+        return emitters;
+    }
+
+    public static class Builder {
+        private Duration coalesceWindow;
+        private int coalesceMaxBytes = 512;
+        private ScheduledExecutorService scheduler;
+        private int bufferCapacity;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.COALESCE_TEXT;
+        private Executor writerExecutor;
+        private StreamBufferMetrics bufferMetrics = new StreamBufferMetrics();
+        private boolean serialized;
+        private RunJournals journals;
+        private boolean deduplicating;
+        private SseEmitterRegistry emitters;
+
+        /**
+         * Merges consecutive text deltas of a message for up to {@code window}, or until they
+         * reach {@code maxBytes}.
+         */
+        public Builder coalesce(Duration window, int maxBytes) {
+            this.coalesceWindow = window;
+            this.coalesceMaxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Shared scheduler timing work on the streams, such as coalescing windows. It only
+         * schedules; writes to clients run on the {@link #writerExecutor writer executor}.
+         */
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Executor that writes to clients off the producing thread: coalescing flushes, buffer
+         * drains and other timed writes.
+         */
+        public Builder writerExecutor(Executor writerExecutor) {
+            this.writerExecutor = writerExecutor;
+            return this;
+        }
+
+        /**
+         * Queues up to {@code capacity} events per stream and writes them to the client on
+         * {@code writerExecutor}, applying {@code policy} when a slow client lets the queue fill.
+         */
+        public Builder buffer(int capacity, OverflowPolicy policy, Executor writerExecutor) {
+            this.bufferCapacity = capacity;
+            this.overflowPolicy = policy;
+            this.writerExecutor = writerExecutor;
+            return this;
+        }
+
+        /**
+         * Counters the stream buffers report to; a private instance is used if not set.
+         */
+        public Builder bufferMetrics(StreamBufferMetrics bufferMetrics) {
+            this.bufferMetrics = bufferMetrics;
+            return this;
+        }
+
+        /**
+         * Writes to the client through a lock-free queue drained by one thread at a time.
+         */
+        public Builder serialized(boolean serialized) {
+            this.serialized = serialized;
+            return this;
+        }
+
+        /**
+         * Records SSE runs in {@code journals}, so a client can resume a run after losing its
+         * connection.
+         */
+        public Builder journals(RunJournals journals) {
+            this.journals = journals;
+            return this;
+        }
+
+        /**
+         * Lets a request with the same thread and messages as an in-flight journaled run attach
+         * to that run instead of starting another one.
+         */
+        public Builder deduplicate(boolean deduplicating) {
+            this.deduplicating = deduplicating;
+            return this;
+        }
+
+        /**
+         * Opens SSE emitters from {@code emitters}, which keeps them alive with heartbeats and
+         * closes idle, overlong and dead ones.
+         */
+        public Builder emitters(SseEmitterRegistry emitters) {
+            this.emitters = emitters;
+            return this;
+        }
+
+        public AgUiStreamOptions build() {
+            return new AgUiStreamOptions(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static AgUiStreamOptions defaults() {
+        return new Builder().build();
+    }
+}
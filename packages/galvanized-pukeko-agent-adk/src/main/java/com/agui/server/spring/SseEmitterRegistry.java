@@ -0,0 +1,178 @@
+package com.agui.server.spring;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the open AG-UI SSE responses. A single task on the shared scheduler sends a comment
+ * heartbeat on every stream that has been quiet for the heartbeat interval, closes streams that
+ * have been open for the maximum duration or have carried no event for the idle timeout while
+ * their run is no longer active, and reaps streams whose heartbeat cannot be written because the
+ * client is gone. A run busy in a long tool call or model turn is therefore only cut off by the
+ * maximum duration. The sweep only
+ * decides: heartbeats and closes are written on the writer executor, so a stalled client cannot
+ * hold up the scheduler, and each stream has at most one heartbeat in flight.
+ */
+public class SseEmitterRegistry {
+
+    private final Duration heartbeatInterval;
+    private final Duration idleTimeout;
+    private final Duration maxDuration;
+    private final Executor writer;
+    private final Map<TrackedEmitter, Boolean> emitters = new ConcurrentHashMap<>();
+    private final LongAdder reaped = new LongAdder();
+
+    private final Logger logger = Logger.getLogger(SseEmitterRegistry.class.getName());
+
+    /**
+     * @param heartbeatInterval quiet time after which a heartbeat comment is sent
+     * @param idleTimeout       time without events after which a stream is closed; zero disables
+     * @param maxDuration       longest a stream stays open; zero disables
+     * @param scheduler         shared scheduler running the sweep
+     * @param writer            executor writing heartbeats and closing streams
+     */
+    public SseEmitterRegistry(
+        final Duration heartbeatInterval,
+        final Duration idleTimeout,
+        final Duration maxDuration,
+        final ScheduledExecutorService scheduler,
+        final Executor writer
+    ) {
+        this.heartbeatInterval = heartbeatInterval;
+        this.idleTimeout = idleTimeout;
+        this.maxDuration = maxDuration;
+        this.writer = writer;
+        long sweepNanos = heartbeatInterval.toNanos();
+        scheduler.scheduleWithFixedDelay(this::sweep, sweepNanos, sweepNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a tracked emitter that is not tied to a run, so the idle timeout always applies.
+     */
+    public SseEmitter open() {
+        return open(() -> false);
+    }
+
+    /**
+     * Creates a tracked emitter. The container times it out after the maximum duration as well.
+     *
+     * @param runActive whether the run the stream follows is still going; the idle timeout does
+     *                  not close the stream while it is
+     */
+    public SseEmitter open(final BooleanSupplier runActive) {
+        var emitter = new TrackedEmitter(maxDuration.isZero() ? Long.MAX_VALUE : maxDuration.toMillis(), runActive);
+        emitters.put(emitter, Boolean.TRUE);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(error -> emitters.remove(emitter));
+        return emitter;
+    }
+
+    public int getOpenStreams() {
+        return emitters.size();
+    }
+
+    /**
+     * Age in seconds of the longest open stream, or zero if none is open.
+     */
+    public double getOldestAgeSeconds() {
+        long now = System.nanoTime();
+        long oldest = 0;
+        for (TrackedEmitter emitter : emitters.keySet()) {
+            oldest = Math.max(oldest, now - emitter.openedNanos);
+        }
+        return oldest / 1e9;
+    }
+
+    /**
+     * Streams closed because their client could no longer be written to.
+     */
+    public long getReaped() {
+        return reaped.sum();
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        for (TrackedEmitter emitter : emitters.keySet()) {
+            if (!maxDuration.isZero() && now - emitter.openedNanos >= maxDuration.toNanos()) {
+                close(emitter);
+            } else if (!idleTimeout.isZero() && now - emitter.lastEventNanos >= idleTimeout.toNanos()
+                && !emitter.runActive.getAsBoolean()) {
+                logger.info("Closing AG-UI stream idle for " + idleTimeout);
+                close(emitter);
+            } else if (now - emitter.lastWriteNanos >= heartbeatInterval.toNanos()
+                && emitter.heartbeatPending.compareAndSet(false, true)) {
+                write(() -> heartbeat(emitter, now));
+            }
+        }
+    }
+
+    private void heartbeat(final TrackedEmitter emitter, final long now) {
+        try {
+            emitter.heartbeat(now);
+        } catch (IOException | IllegalStateException e) {
+            // Half-open or already closed connection
+            reaped.increment();
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+        } finally {
+            emitter.heartbeatPending.set(false);
+        }
+    }
+
+    private void close(final TrackedEmitter emitter) {
+        // Removed before the write so the next sweep does not close it again
+        emitters.remove(emitter);
+        write(emitter::complete);
+    }
+
+    private void write(final Runnable task) {
+        try {
+            writer.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.fine("AG-UI stream writer is shut down, skipping sweep write");
+        }
+    }
+
+    /**
+     * Emitter remembering when it was opened and last written to, and whether its run is active.
+     */
+    private static final class TrackedEmitter extends SseEmitter {
+
+        private final BooleanSupplier runActive;
+        private final long openedNanos = System.nanoTime();
+        private volatile long lastEventNanos = openedNanos;
+        private volatile long lastWriteNanos = openedNanos;
+        private final AtomicBoolean heartbeatPending = new AtomicBoolean();
+
+        private TrackedEmitter(final long timeoutMillis, final BooleanSupplier runActive) {
+            super(timeoutMillis);
+            this.runActive = runActive;
+        }
+
+        @Override
+        public void send(final SseEventBuilder builder) throws IOException {
+            super.send(builder);
+            long now = System.nanoTime();
+            lastEventNanos = now;
+            lastWriteNanos = now;
+        }
+
+        private void heartbeat(final long now) throws IOException {
+            super.send(SseEmitter.event().comment("keepalive"));
+            lastWriteNanos = now;
+        }
+    }
+}
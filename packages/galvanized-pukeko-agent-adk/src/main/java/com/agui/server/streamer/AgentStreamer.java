@@ -6,12 +6,18 @@ import com.agui.core.agent.AgentSubscriber;
 import com.agui.core.agent.AgentSubscriberParams;
 import com.agui.core.agent.RunAgentParameters;
 import com.agui.core.event.BaseEvent;
-import com.agui.core.stream.EventStream;
+import com.agui.core.stream.IEventStream;
+
+import java.util.concurrent.CompletableFuture;
 
 public class AgentStreamer {
 
-    public void streamEvents(final Agent agent, final RunAgentParameters parameters, final EventStream<BaseEvent> eventStream) {
-        agent.runAgent(parameters, new AgentSubscriber() {
+    /**
+     * Runs the agent and forwards its events to the stream. Cancelling the stream cancels the
+     * returned run future, which stops the agent's upstream work.
+     */
+    public CompletableFuture<Void> streamEvents(final Agent agent, final RunAgentParameters parameters, final IEventStream<BaseEvent> eventStream) {
+        var future = agent.runAgent(parameters, new AgentSubscriber() {
             @Override
             public void onEvent(BaseEvent event) {
                 eventStream.next(event);
@@ -27,5 +33,7 @@ public class AgentStreamer {
                 eventStream.error(throwable);
             }
         });
+        eventStream.onCancel(() -> future.cancel(true));
+        return future;
     }
 }
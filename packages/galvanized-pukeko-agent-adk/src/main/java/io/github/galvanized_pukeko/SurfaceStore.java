@@ -0,0 +1,100 @@
+package io.github.galvanized_pukeko;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A2UI surfaces rendered by the agent, kept so that tool results and the model's context carry a
+ * short reference instead of the JSONL. Surfaces belong to the thread that rendered them and are
+ * only found through it. Within a thread a surface is stored under {@code <surfaceId>@<hash>},
+ * where the hash is taken over its content, so rendering the same surface again reuses the entry.
+ * The least recently used surfaces of all threads are dropped beyond {@code maxSurfaces}.
+ */
+public class SurfaceStore {
+
+  private static final Pattern SURFACE_ID = Pattern.compile("\"surfaceId\"\\s*:\\s*\"([^\"]+)\"");
+  private static final String DEFAULT_SURFACE_ID = "surface";
+
+  /** Keyed by {@link #key(String, String)} of the thread and the reference. */
+  private final Map<String, Surface> surfaces;
+  /** Keyed by {@link #key(String, String)} of the thread and the surface id. */
+  private final Map<String, String> latestBySurfaceId = new HashMap<>();
+
+  public SurfaceStore(int maxSurfaces) {
+    this.surfaces = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Surface> eldest) {
+        if (size() <= maxSurfaces) {
+          return false;
+        }
+        Surface surface = eldest.getValue();
+        latestBySurfaceId.remove(key(surface.threadId(), surface.surfaceId()), surface.ref());
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Stores {@code jsonl} for {@code threadId} and returns its entry, reusing the thread's existing
+   * one for identical content.
+   */
+  public synchronized Surface put(String threadId, String jsonl) {
+    Matcher matcher = SURFACE_ID.matcher(jsonl);
+    String surfaceId = matcher.find() ? matcher.group(1) : DEFAULT_SURFACE_ID;
+    String hash = hash(jsonl);
+    String ref = surfaceId + "@" + hash;
+    Surface surface = surfaces.computeIfAbsent(key(threadId, ref),
+        key -> new Surface(threadId, ref, surfaceId, hash, jsonl));
+    latestBySurfaceId.put(key(threadId, surfaceId), ref);
+    return surface;
+  }
+
+  /**
+   * Resolves a reference, or a bare surface id to the latest version of that surface, among the
+   * surfaces of {@code threadId}.
+   */
+  public synchronized Optional<Surface> get(String threadId, String refOrSurfaceId) {
+    String ref = refOrSurfaceId.contains("@")
+        ? refOrSurfaceId
+        : latestBySurfaceId.get(key(threadId, refOrSurfaceId));
+    return ref == null ? Optional.empty() : Optional.ofNullable(surfaces.get(key(threadId, ref)));
+  }
+
+  public synchronized int size() {
+    return surfaces.size();
+  }
+
+  private static String key(String threadId, String id) {
+    // Thread ids come from clients, so they are length-prefixed rather than joined by a separator
+    return threadId.length() + ":" + threadId + id;
+  }
+
+  private static String hash(String jsonl) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(jsonl.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest, 0, 8);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /**
+   * A stored surface.
+   *
+   * @param threadId  the thread that rendered it, the only one it is served to
+   * @param ref       the reference handed to the model and the client
+   * @param surfaceId id of the first surface the JSONL describes
+   * @param hash      content hash part of the reference
+   * @param jsonl     the A2UI JSONL
+   */
+  public record Surface(String threadId, String ref, String surfaceId, String hash, String jsonl) {
+  }
+}
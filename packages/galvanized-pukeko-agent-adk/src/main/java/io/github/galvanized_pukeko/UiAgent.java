@@ -4,6 +4,7 @@ import com.google.adk.agents.BaseAgent;
 import com.google.adk.agents.LlmAgent;
 import com.google.adk.tools.Annotations.Schema;
 import com.google.adk.tools.FunctionTool;
+import com.google.adk.tools.ToolContext;
 import io.github.galvanized_pukeko.config.A2aAgentFactory;
 import io.github.galvanized_pukeko.config.A2aConfiguration;
 import io.github.galvanized_pukeko.config.AiConfiguration;
@@ -20,6 +21,14 @@ public class UiAgent {
 
   private static final Logger log = LoggerFactory.getLogger(UiAgent.class);
   public static final String PUKEKO_UI_AGENT_NAME = "pukeko-ui-agent";
+  public static final String SHOW_A2UI_SURFACE = "show_a2ui_surface";
+
+  /** Surfaces rendered by {@link #showA2uiSurface}, the store the agent was created with. */
+  private final SurfaceStore surfaceStore;
+
+  private UiAgent(SurfaceStore surfaceStore) {
+    this.surfaceStore = surfaceStore;
+  }
 
   /**
    * Factory method to create the UI agent with MCP and A2A configurations.
@@ -31,6 +40,7 @@ public class UiAgent {
    * @param a2aConfig A2A configuration from application.properties
    * @param a2aFactory Factory for creating A2A remote agents
    * @param promptLoader Loader for external prompt files
+   * @param surfaces Store the surfaces rendered by the agent are kept in
    * @return Configured LlmAgent with tools and sub-agents
    */
   public static LlmAgent createAgent(
@@ -39,7 +49,8 @@ public class UiAgent {
       McpToolsetFactory mcpFactory,
       A2aConfiguration a2aConfig,
       A2aAgentFactory a2aFactory,
-      PromptLoader promptLoader
+      PromptLoader promptLoader,
+      SurfaceStore surfaces
   ) {
     // Validate required configuration (should have been set by AiConfiguration from defaults if not configured)
     String description = aiConfig.getDescription();
@@ -55,9 +66,9 @@ public class UiAgent {
     // Load the agent prompt from configured path
     String instruction = promptLoader.loadPrompt(aiConfig.getPromptPath());
 
-    // Build tools list
+    // Build tools list; the surface tool is bound to an instance holding this agent's store
     List<Object> tools = new ArrayList<>();
-    tools.add(FunctionTool.create(UiAgent.class, "showA2uiSurface"));
+    tools.add(FunctionTool.create(new UiAgent(surfaces), "showA2uiSurface"));
 
     // Add MCP toolset if configured
     mcpFactory.create(mcpConfig).ifPresent(toolset -> {
@@ -92,18 +103,23 @@ public class UiAgent {
 
   /**
    * Display an A2UI surface to the user. The AG-UI streamer automatically emits the
-   * surfaceJsonl content as TOOL_CALL_ARGS events, which the client renders.
+   * surfaceJsonl content as TOOL_CALL_ARGS events, which the client renders. The result only
+   * references the stored surface, so the JSONL is not sent to the client again or kept in the
+   * model's context. The surface is stored for the ADK session, whose id is the AG-UI thread id.
    */
-  @Schema(name = "show_a2ui_surface",
+  @Schema(name = SHOW_A2UI_SURFACE,
       description = "Display an A2UI surface to the user. Pass A2UI JSONL as surfaceJsonl "
       + "(newline-separated JSON objects: surfaceUpdate, optional dataModelUpdate, beginRendering).")
-  public static Map<String, String> showA2uiSurface(
+  public Map<String, String> showA2uiSurface(
       @Schema(
           name = "surfaceJsonl",
           description = "A2UI JSONL content: newline-separated JSON objects describing the surface"
-      ) String surfaceJsonl
+      ) String surfaceJsonl,
+      @Schema(name = "toolContext") ToolContext toolContext
   ) {
     log.info("show_a2ui_surface called with {} chars of JSONL", surfaceJsonl != null ? surfaceJsonl.length() : 0);
-    return Map.of("status", "surface_rendered", "surfaceJsonl", surfaceJsonl != null ? surfaceJsonl : "");
+    var surface = surfaceStore.put(toolContext.sessionId(), surfaceJsonl != null ? surfaceJsonl : "");
+    return Map.of("status", "surface_rendered", "surfaceId", surface.surfaceId(),
+        "surfaceRef", surface.ref());
   }
 }
@@ -12,16 +12,33 @@ import com.google.adk.sessions.BaseSessionService;
 import com.google.adk.web.AdkWebServer;
 import com.google.adk.web.AgentLoader;
 import com.google.common.collect.ImmutableList;
+import com.agui.core.stream.StreamBufferMetrics;
+import com.agui.json.EventWriters;
+import com.agui.server.RunExecutor;
+import com.agui.server.ThreadStateStore;
+import com.agui.server.journal.RunJournals;
 import com.agui.server.streamer.AgentStreamer;
+import com.agui.server.spring.AgUiEventHttpMessageConverter;
+import com.agui.server.spring.AgUiParametersHttpMessageConverter;
+import com.agui.server.spring.AgUiParametersReader;
 import com.agui.server.spring.AgUiService;
+import com.agui.server.spring.SseEmitterRegistry;
+import com.agui.server.spring.AgUiStreamOptions;
 import io.github.galvanized_pukeko.agui.AdkLocalAgent;
 import io.github.galvanized_pukeko.config.A2aAgentFactory;
+import io.github.galvanized_pukeko.config.AgUiProperties;
 import io.github.galvanized_pukeko.config.A2aConfiguration;
 import io.github.galvanized_pukeko.config.AiConfiguration;
 import io.github.galvanized_pukeko.config.McpConfiguration;
 import io.github.galvanized_pukeko.config.McpToolsetFactory;
 import io.github.galvanized_pukeko.config.PromptLoader;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -83,9 +100,217 @@ public class UiAgentApplication extends AdkWebServer {
     return new AgentStreamer();
   }
 
+  /**
+   * One scheduler shared by all AG-UI streams for their timed work, instead of a timer per stream.
+   * Its single thread only schedules; anything that writes to a client is handed to
+   * {@code agUiStreamWriterExecutor}.
+   */
+  @Bean(destroyMethod = "shutdownNow")
+  public ScheduledExecutorService agUiScheduler() {
+    return Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "agui-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Bean
+  public AgUiService agUiService(AgentStreamer agentStreamer, ObjectMapper objectMapper,
+      AgUiProperties agUiProperties, ScheduledExecutorService agUiScheduler,
+      RunExecutor agUiStreamWriterExecutor, StreamBufferMetrics agUiStreamBufferMetrics,
+      RunJournals agUiRunJournals, SseEmitterRegistry agUiSseEmitters) {
+    var options = AgUiStreamOptions.builder()
+        .scheduler(agUiScheduler)
+        .writerExecutor(agUiStreamWriterExecutor)
+        .emitters(agUiSseEmitters)
+        .bufferMetrics(agUiStreamBufferMetrics)
+        .serialized(agUiProperties.getStream().isSerialized());
+    if (agUiProperties.getJournal().isEnabled()) {
+      options.journals(agUiRunJournals).deduplicate(agUiProperties.getJournal().isDedupe());
+    }
+    AgUiProperties.Coalesce coalesce = agUiProperties.getCoalesce();
+    if (coalesce.isEnabled()) {
+      options.coalesce(coalesce.getWindow(), coalesce.getMaxBytes());
+    }
+    AgUiProperties.Buffer buffer = agUiProperties.getBuffer();
+    if (buffer.isEnabled()) {
+      options.buffer(buffer.getCapacity(), buffer.getOverflowPolicy(), agUiStreamWriterExecutor);
+    }
+    return new AgUiService(agentStreamer, objectMapper, options.build());
+  }
+
+  /**
+   * Open SSE streams, kept alive by heartbeats and closed when idle, overlong or dead. The shared
+   * scheduler decides when; the writes run on the stream writer executor.
+   */
+  @Bean
+  public SseEmitterRegistry agUiSseEmitters(AgUiProperties agUiProperties,
+      ScheduledExecutorService agUiScheduler, RunExecutor agUiStreamWriterExecutor) {
+    AgUiProperties.Sse sse = agUiProperties.getSse();
+    return new SseEmitterRegistry(sse.getHeartbeatInterval(), sse.getIdleTimeout(),
+        sse.getMaxDuration(), agUiScheduler, agUiStreamWriterExecutor);
+  }
+
+  /**
+   * Conversation state of each AG-UI thread, so concurrent threads neither share nor contend on it.
+   */
+  @Bean
+  public ThreadStateStore agUiThreads(AgUiProperties agUiProperties) {
+    AgUiProperties.Threads threads = agUiProperties.getThreads();
+    return new ThreadStateStore(threads.getTtl(), threads.getMaxThreads(), threads.getHistory());
+  }
+
+  @Bean
+  public MeterBinder agUiThreadMeters(ThreadStateStore agUiThreads) {
+    return registry -> Gauge.builder("pukeko.agui.threads", agUiThreads, ThreadStateStore::size)
+        .description("AG-UI threads with conversation state held in memory")
+        .register(registry);
+  }
+
+  @Bean
+  public MeterBinder agUiSseEmitterMeters(SseEmitterRegistry agUiSseEmitters) {
+    return registry -> {
+      Gauge.builder("pukeko.agui.sse.open", agUiSseEmitters, SseEmitterRegistry::getOpenStreams)
+          .description("Open AG-UI SSE streams")
+          .register(registry);
+      Gauge.builder("pukeko.agui.sse.oldest.age", agUiSseEmitters,
+              SseEmitterRegistry::getOldestAgeSeconds)
+          .description("Age of the longest open AG-UI SSE stream")
+          .baseUnit("seconds")
+          .register(registry);
+      FunctionCounter.builder("pukeko.agui.sse.reaped", agUiSseEmitters,
+              SseEmitterRegistry::getReaped)
+          .description("AG-UI SSE streams closed because the client was gone")
+          .register(registry);
+    };
+  }
+
+  /**
+   * Recent events of every SSE run, for clients resuming a dropped connection.
+   */
+  @Bean
+  public RunJournals agUiRunJournals(AgUiProperties agUiProperties,
+      ScheduledExecutorService agUiScheduler) {
+    AgUiProperties.Journal journal = agUiProperties.getJournal();
+    return new RunJournals(journal.getCapacity(), journal.getTtl(), journal.getDetachGrace(),
+        agUiScheduler);
+  }
+
+  @Bean
+  public MeterBinder agUiRunJournalMeters(RunJournals agUiRunJournals) {
+    return registry -> Gauge.builder("pukeko.agui.journals", agUiRunJournals, RunJournals::size)
+        .description("AG-UI runs with a resumable event journal")
+        .register(registry);
+  }
+
+  /**
+   * Executor that writes to clients off the producing thread: buffer drains and coalescing
+   * flushes. Kept apart from the run executor so that blocked client writes do not hold up
+   * runs, but built from the same properties so both use the same kind of thread.
+   */
+  @Bean(destroyMethod = "close")
+  public RunExecutor agUiStreamWriterExecutor(AgUiProperties agUiProperties) {
+    return runExecutor(agUiProperties.getRuns());
+  }
+
+  @Bean
+  public StreamBufferMetrics agUiStreamBufferMetrics() {
+    return new StreamBufferMetrics();
+  }
+
+  /**
+   * Buffer occupancy and slow-consumer counters for the AG-UI streams.
+   */
   @Bean
-  public AgUiService agUiService(AgentStreamer agentStreamer, ObjectMapper objectMapper) {
-    return new AgUiService(agentStreamer, objectMapper);
+  public MeterBinder agUiStreamBufferMeters(StreamBufferMetrics agUiStreamBufferMetrics) {
+    return registry -> {
+      Gauge.builder("pukeko.agui.stream.buffered", agUiStreamBufferMetrics,
+              StreamBufferMetrics::getBuffered)
+          .description("AG-UI events waiting to be written to clients")
+          .register(registry);
+      Gauge.builder("pukeko.agui.stream.buffer.high-water", agUiStreamBufferMetrics,
+              StreamBufferMetrics::getHighWaterMark)
+          .description("Deepest a single AG-UI stream buffer has been")
+          .register(registry);
+      FunctionCounter.builder("pukeko.agui.stream.events.coalesced", agUiStreamBufferMetrics,
+              StreamBufferMetrics::getCoalesced)
+          .description("AG-UI text deltas merged because a client fell behind")
+          .register(registry);
+      FunctionCounter.builder("pukeko.agui.stream.events.dropped", agUiStreamBufferMetrics,
+              StreamBufferMetrics::getDropped)
+          .description("AG-UI events dropped because a client fell behind")
+          .register(registry);
+      FunctionCounter.builder("pukeko.agui.stream.disconnects", agUiStreamBufferMetrics,
+              StreamBufferMetrics::getDisconnects)
+          .description("AG-UI clients disconnected for being too slow")
+          .register(registry);
+    };
+  }
+
+  /**
+   * Serializes AG-UI events directly into the SSE response. Registered ahead of the default
+   * Jackson converter by Spring Boot's HttpMessageConverters.
+   */
+  @Bean
+  public AgUiEventHttpMessageConverter agUiEventHttpMessageConverter(ObjectMapper objectMapper) {
+    return new AgUiEventHttpMessageConverter(new EventWriters(objectMapper));
+  }
+
+  /**
+   * Streaming reader for run requests, applying the configured size limits and message window.
+   */
+  @Bean
+  public AgUiParametersReader agUiParametersReader(ObjectMapper objectMapper,
+      AgUiProperties agUiProperties) {
+    AgUiProperties.Request request = agUiProperties.getRequest();
+    return new AgUiParametersReader(objectMapper, request.getMaxBodySize().toBytes(),
+        request.getMaxMessages(), request.isSkipTools(), request.isSkipContext());
+  }
+
+  /**
+   * Binds run request bodies with {@link AgUiParametersReader} instead of the Jackson converter.
+   */
+  @Bean
+  public AgUiParametersHttpMessageConverter agUiParametersHttpMessageConverter(
+      AgUiParametersReader agUiParametersReader) {
+    return new AgUiParametersHttpMessageConverter(agUiParametersReader);
+  }
+
+  /**
+   * Executor AG-UI runs are dispatched on. Virtual threads by default, so a run blocked on the
+   * model does not hold one of a handful of pool threads. On JDK 17 every ADK run still blocks a
+   * platform thread, so at most {@code platform-threads} runs execute at once and the rest queue.
+   */
+  @Bean(destroyMethod = "close")
+  public RunExecutor agUiRunExecutor(AgUiProperties agUiProperties) {
+    AgUiProperties.Runs runs = agUiProperties.getRuns();
+    RunExecutor runExecutor = runExecutor(runs);
+    log.info("AG-UI runs use {}", runExecutor.isVirtualThreads()
+        ? "virtual threads" : runs.getPlatformThreads() + " platform threads, so at most "
+            + runs.getPlatformThreads() + " runs execute concurrently");
+    return runExecutor;
+  }
+
+  private static RunExecutor runExecutor(AgUiProperties.Runs runs) {
+    return runs.isVirtualThreads()
+        ? RunExecutor.virtualThreads(runs.getPlatformThreads())
+        : RunExecutor.platformThreads(runs.getPlatformThreads());
+  }
+
+  /**
+   * Queue-depth and active-run gauges for the run executor. Picked up by any MeterRegistry in
+   * the context (e.g. when the host application adds Spring Boot Actuator).
+   */
+  @Bean
+  public MeterBinder agUiRunExecutorMetrics(@Qualifier("agUiRunExecutor") RunExecutor agUiRunExecutor) {
+    return registry -> {
+      Gauge.builder("pukeko.agui.runs.queued", agUiRunExecutor, RunExecutor::getQueueDepth)
+          .description("AG-UI runs waiting for a thread")
+          .register(registry);
+      Gauge.builder("pukeko.agui.runs.active", agUiRunExecutor, RunExecutor::getActiveRuns)
+          .description("AG-UI runs currently executing")
+          .register(registry);
+    };
   }
 
   @Bean
@@ -93,11 +318,24 @@ public class UiAgentApplication extends AdkWebServer {
       AgentLoader agentLoader,
       BaseSessionService sessionService,
       BaseArtifactService artifactService,
-      BaseMemoryService memoryService
+      BaseMemoryService memoryService,
+      @Qualifier("agUiRunExecutor") RunExecutor agUiRunExecutor,
+      ObjectMapper objectMapper,
+      ThreadStateStore agUiThreads
   ) throws Exception {
     BaseAgent agent = agentLoader.loadAgent(PUKEKO_UI_AGENT_NAME);
     Runner runner = new Runner(agent, PUKEKO_UI_AGENT_NAME, artifactService, sessionService, memoryService);
-    return new AdkLocalAgent(PUKEKO_UI_AGENT_NAME, runner, PUKEKO_UI_AGENT_NAME, sessionService);
+    return new AdkLocalAgent(PUKEKO_UI_AGENT_NAME, runner, PUKEKO_UI_AGENT_NAME, sessionService,
+        agUiRunExecutor, objectMapper, agUiThreads);
+  }
+
+  /**
+   * A2UI surfaces rendered by the agent, served by reference instead of being echoed through
+   * tool results.
+   */
+  @Bean
+  public SurfaceStore surfaceStore(AgUiProperties agUiProperties) {
+    return new SurfaceStore(agUiProperties.getSurfaces().getMaxSurfaces());
   }
 
   /**
@@ -112,10 +350,12 @@ public class UiAgentApplication extends AdkWebServer {
       McpToolsetFactory mcpFactory,
       A2aConfiguration a2aConfig,
       A2aAgentFactory a2aFactory,
-      PromptLoader promptLoader
+      PromptLoader promptLoader,
+      SurfaceStore surfaceStore
   ) {
     log.info("creating agent loader");
-    return new UiAgentLoader(aiConfig, mcpConfig, mcpFactory, a2aConfig, a2aFactory, promptLoader);
+    return new UiAgentLoader(aiConfig, mcpConfig, mcpFactory, a2aConfig, a2aFactory, promptLoader,
+        surfaceStore);
   }
 
   private static class UiAgentLoader implements AgentLoader {
@@ -124,9 +364,9 @@ public class UiAgentApplication extends AdkWebServer {
 
     public UiAgentLoader(AiConfiguration aiConfig,
         McpConfiguration mcpConfig, McpToolsetFactory mcpFactory, A2aConfiguration a2aConfig,
-        A2aAgentFactory a2aFactory, PromptLoader promptLoader) {
+        A2aAgentFactory a2aFactory, PromptLoader promptLoader, SurfaceStore surfaceStore) {
       this.uiAgent = UiAgent.createAgent(aiConfig, mcpConfig, mcpFactory,
-          a2aConfig, a2aFactory, promptLoader);
+          a2aConfig, a2aFactory, promptLoader, surfaceStore);
     }
 
     @Override
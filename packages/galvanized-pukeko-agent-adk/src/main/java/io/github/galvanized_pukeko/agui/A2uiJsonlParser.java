@@ -0,0 +1,157 @@
+package io.github.galvanized_pukeko.agui;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Picks complete A2UI messages out of the streamed arguments of a {@code show_a2ui_surface} call.
+ *
+ * <p>The arguments arrive as deltas of {@code {"surfaceJsonl":"..."}}, with the JSONL escaped
+ * inside a JSON string. Each delta is unescaped as it comes and split into top-level objects by
+ * tracking brace depth, so every character is looked at once. A finished object is parsed on its
+ * own and returned if it is a {@code surfaceUpdate}, {@code dataModelUpdate},
+ * {@code beginRendering} or {@code deleteSurface} message; an object that fails to parse, and
+ * whatever is left open when the string ends, is dropped without touching the rest.
+ */
+class A2uiJsonlParser {
+
+    private static final Logger log = LoggerFactory.getLogger(A2uiJsonlParser.class);
+    private static final Pattern FIELD = Pattern.compile("\"surfaceJsonl\"\\s*:\\s*\"");
+    private static final Set<String> MESSAGE_TYPES =
+        Set.of("surfaceUpdate", "dataModelUpdate", "beginRendering", "deleteSurface");
+
+    private final ObjectMapper objectMapper;
+
+    /** Arguments seen before the opening quote of the field value. */
+    private final StringBuilder head = new StringBuilder();
+    private boolean inValue;
+    private boolean valueEnded;
+
+    // Unescaping of the JSON string value
+    private boolean escape;
+    private int unicodeDigits = -1;
+    private int unicode;
+
+    // Splitting of the unescaped JSONL into objects
+    private final StringBuilder object = new StringBuilder();
+    private int depth;
+    private boolean inString;
+    private boolean stringEscape;
+
+    A2uiJsonlParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Consumes the next arguments delta and returns the A2UI messages it completed.
+     */
+    List<JsonNode> feed(String delta) {
+        List<JsonNode> messages = new ArrayList<>();
+        if (valueEnded) {
+            return messages;
+        }
+        if (inValue) {
+            decode(delta, messages);
+            return messages;
+        }
+        head.append(delta);
+        Matcher field = FIELD.matcher(head);
+        if (field.find()) {
+            inValue = true;
+            String rest = head.substring(field.end());
+            head.setLength(0);
+            decode(rest, messages);
+        }
+        return messages;
+    }
+
+    private void decode(String chars, List<JsonNode> messages) {
+        for (int i = 0; i < chars.length() && !valueEnded; i++) {
+            char c = chars.charAt(i);
+            if (unicodeDigits >= 0) {
+                unicode = (unicode << 4) | Character.digit(c, 16);
+                if (++unicodeDigits == 4) {
+                    unicodeDigits = -1;
+                    accept((char) unicode, messages);
+                }
+            } else if (escape) {
+                escape = false;
+                switch (c) {
+                    case 'n' -> accept('\n', messages);
+                    case 't' -> accept('\t', messages);
+                    case 'r' -> accept('\r', messages);
+                    case 'b' -> accept('\b', messages);
+                    case 'f' -> accept('\f', messages);
+                    case 'u' -> {
+                        unicodeDigits = 0;
+                        unicode = 0;
+                    }
+                    default -> accept(c, messages);
+                }
+            } else if (c == '\\') {
+                escape = true;
+            } else if (c == '"') {
+                valueEnded = true;
+                if (depth > 0) {
+                    log.debug("Dropping unterminated A2UI fragment of {} chars", object.length());
+                }
+            } else {
+                accept(c, messages);
+            }
+        }
+    }
+
+    private void accept(char c, List<JsonNode> messages) {
+        if (depth == 0) {
+            // Newlines and stray text between objects
+            if (c == '{') {
+                depth = 1;
+                object.append(c);
+            }
+            return;
+        }
+        object.append(c);
+        if (inString) {
+            if (stringEscape) {
+                stringEscape = false;
+            } else if (c == '\\') {
+                stringEscape = true;
+            } else if (c == '"') {
+                inString = false;
+            }
+            return;
+        }
+        switch (c) {
+            case '"' -> inString = true;
+            case '{', '[' -> depth++;
+            case '}', ']' -> {
+                if (--depth == 0) {
+                    complete(messages);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void complete(List<JsonNode> messages) {
+        try {
+            JsonNode message = objectMapper.readTree(object.toString());
+            if (message.isObject() && MESSAGE_TYPES.stream().anyMatch(message::has)) {
+                messages.add(message);
+            }
+        } catch (IOException e) {
+            log.debug("Skipping malformed A2UI line: {}", e.getMessage());
+        }
+        object.setLength(0);
+    }
+}
@@ -0,0 +1,215 @@
+package io.github.galvanized_pukeko.agui;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers the A2UI surfaces sent on one thread and reduces a surface rendered again to what
+ * changed. Kept as an attachment of the thread, so it carries over from run to run.
+ *
+ * <p>The client may have dropped surfaces between runs, for example after a user action, a reload
+ * or a cancelled run. Each surface is therefore recorded with the tool call that last rendered it,
+ * and a run starts with {@link #resync}: the client sends, in {@value #HELD_SURFACES_PROP} of the
+ * forwarded props, the surface ids it shows mapped to those tool call ids, and every surface it does
+ * not hold in the recorded version is forgotten and sent in full again. A client that sends nothing
+ * gets every surface in full.
+ *
+ * <p>Clients merge {@code surfaceUpdate} components by id and {@code dataModelUpdate} contents by
+ * path and key, so only components and entries whose JSON changed are passed on. An entry set to
+ * the value it was last sent with is not sent again, so an edit the user made to it stands.
+ * {@code beginRendering} is always sent, as it sets the root. A2UI has no message removing a
+ * component or data entry, so when a render leaves out one the client was sent, the surface is
+ * deleted and the render is sent again in full instead.
+ */
+class A2uiSurfaceDiffer {
+
+    /**
+     * Forwarded prop holding {@code {"<surfaceId>": "<toolCallId>", ...}}, the surfaces the client
+     * shows and the tool calls that rendered them.
+     */
+    static final String HELD_SURFACES_PROP = "a2uiSurfaces";
+
+    private final Map<String, SurfaceState> surfaces = new HashMap<>();
+
+    /**
+     * Forgets the surfaces the client does not hold as they were last rendered, so they are sent in
+     * full. {@code forwardedProps} are those of the run's input.
+     */
+    synchronized void resync(Object forwardedProps) {
+        Map<?, ?> held = forwardedProps instanceof Map<?, ?> props
+            && props.get(HELD_SURFACES_PROP) instanceof Map<?, ?> map ? map : Map.of();
+        surfaces.entrySet().removeIf(entry -> {
+            var surface = entry.getValue();
+            surface.render = null;
+            return surface.renderedBy == null || !surface.renderedBy.equals(held.get(entry.getKey()));
+        });
+    }
+
+    /**
+     * The messages to send in place of {@code message}, streamed in tool call {@code toolCallId};
+     * empty if the client has all of it.
+     */
+    synchronized List<ObjectNode> diff(String toolCallId, ObjectNode message) {
+        List<ObjectNode> out = new ArrayList<>();
+        message.fields().forEachRemaining(field -> {
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "surfaceUpdate" -> surfaceUpdate(value, out);
+                case "dataModelUpdate" -> dataModelUpdate(value, out);
+                case "beginRendering" -> beginRendering(toolCallId, value, out);
+                case "deleteSurface" -> {
+                    surfaces.remove(value.path("surfaceId").asText());
+                    out.add(message(field.getKey(), value));
+                }
+                default -> out.add(message(field.getKey(), value));
+            }
+        });
+        return out;
+    }
+
+    private void surfaceUpdate(JsonNode update, List<ObjectNode> out) {
+        JsonNode list = update.path("components");
+        if (!list.isArray()) {
+            out.add(message("surfaceUpdate", update));
+            return;
+        }
+        var surface = state(update);
+        var render = surface.render();
+        ArrayNode changed = JsonNodeFactory.instance.arrayNode();
+        for (JsonNode component : list) {
+            render.components.add(component);
+            String id = component.path("id").asText(null);
+            if (id == null) {
+                changed.add(component);
+                continue;
+            }
+            render.componentIds.add(id);
+            if (!component.equals(surface.components.put(id, component))) {
+                changed.add(component);
+            }
+        }
+        if (!changed.isEmpty()) {
+            out.add(message("surfaceUpdate", replace(update, "components", changed)));
+        }
+    }
+
+    private void dataModelUpdate(JsonNode update, List<ObjectNode> out) {
+        JsonNode contents = update.path("contents");
+        if (!contents.isArray()) {
+            out.add(message("dataModelUpdate", update));
+            return;
+        }
+        var surface = state(update);
+        var render = surface.render();
+        render.dataModelUpdates.add(update);
+        String path = update.path("path").asText("/");
+        ArrayNode changed = JsonNodeFactory.instance.arrayNode();
+        for (JsonNode entry : contents) {
+            String key = entry.path("key").asText(null);
+            if (key == null) {
+                changed.add(entry);
+                continue;
+            }
+            String dataKey = path + '\u0000' + key;
+            render.dataKeys.add(dataKey);
+            if (!entry.equals(surface.data.put(dataKey, entry))) {
+                changed.add(entry);
+            }
+        }
+        if (!changed.isEmpty()) {
+            out.add(message("dataModelUpdate", replace(update, "contents", changed)));
+        }
+    }
+
+    private void beginRendering(String toolCallId, JsonNode rendering, List<ObjectNode> out) {
+        var surface = state(rendering);
+        var render = surface.render;
+        surface.render = null;
+        surface.renderedBy = toolCallId;
+        if (render != null && render.leavesOut(surface)) {
+            // Start over so the client does not keep the components and entries left out
+            String surfaceId = rendering.path("surfaceId").asText();
+            var deletion = JsonNodeFactory.instance.objectNode().put("surfaceId", surfaceId);
+            out.add(message("deleteSurface", deletion));
+            var update = JsonNodeFactory.instance.objectNode().put("surfaceId", surfaceId);
+            update.set("components", render.components);
+            out.add(message("surfaceUpdate", update));
+            for (JsonNode dataModelUpdate : render.dataModelUpdates) {
+                out.add(message("dataModelUpdate", dataModelUpdate));
+            }
+            surface.components.keySet().retainAll(render.componentIds);
+            surface.data.keySet().retainAll(render.dataKeys);
+        }
+        out.add(message("beginRendering", rendering));
+    }
+
+    private SurfaceState state(JsonNode body) {
+        var surface = surfaces.computeIfAbsent(body.path("surfaceId").asText(), id -> new SurfaceState());
+        // Until its beginRendering, the client may hold only part of what is recorded
+        surface.renderedBy = null;
+        return surface;
+    }
+
+    private static ObjectNode message(String type, JsonNode body) {
+        ObjectNode message = JsonNodeFactory.instance.objectNode();
+        message.set(type, body);
+        return message;
+    }
+
+    /**
+     * Shallow copy of {@code update} with {@code field} replaced.
+     */
+    private static ObjectNode replace(JsonNode update, String field, ArrayNode values) {
+        ObjectNode copy = JsonNodeFactory.instance.objectNode();
+        update.fields().forEachRemaining(entry -> copy.set(entry.getKey(), entry.getValue()));
+        copy.set(field, values);
+        return copy;
+    }
+
+    /**
+     * What the client has been sent of one surface, and the render of it being streamed.
+     */
+    private static final class SurfaceState {
+
+        private final Map<String, JsonNode> components = new HashMap<>();
+        /** Data model entries by path and key. */
+        private final Map<String, JsonNode> data = new HashMap<>();
+        /** Tool call whose {@code beginRendering} the client was last sent, {@code null} mid-render. */
+        private String renderedBy;
+        private Render render;
+
+        private Render render() {
+            if (render == null) {
+                render = new Render();
+            }
+            return render;
+        }
+    }
+
+    /**
+     * The messages of one render of a surface, up to its {@code beginRendering}.
+     */
+    private static final class Render {
+
+        private final ArrayNode components = JsonNodeFactory.instance.arrayNode();
+        private final Set<String> componentIds = new HashSet<>();
+        private final List<JsonNode> dataModelUpdates = new ArrayList<>();
+        private final Set<String> dataKeys = new HashSet<>();
+
+        /**
+         * Whether the client has components or data entries of the surface this render does not set.
+         */
+        private boolean leavesOut(SurfaceState sent) {
+            return !componentIds.containsAll(sent.components.keySet()) || !dataKeys.containsAll(sent.data.keySet());
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package io.github.galvanized_pukeko.agui;
+
+import static io.github.galvanized_pukeko.UiAgent.SHOW_A2UI_SURFACE;
+
+import com.agui.core.event.*;
+import com.agui.core.message.Role;
+import com.agui.server.MessageRecorder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.adk.events.Event;
+import com.google.genai.types.Content;
+import com.google.genai.types.Part;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Translates the ADK events of a single run into AG-UI events. Holds the per-run translation
+ * state (the assistant message id and whether it has been opened), so one instance must be
+ * created for every run and fed the ADK events in order.
+ *
+ * <p>A function call that arrives in partial events is opened once and its arguments are sent as
+ * {@code TOOL_CALL_ARGS} deltas while they grow, so a client can start rendering a long argument
+ * such as a surface before the call is complete. The call is ended by its final event. For
+ * {@code show_a2ui_surface} every A2UI message completed in the arguments is also sent as an
+ * {@value #A2UI_MESSAGE_EVENT} {@code CUSTOM} event.
+ */
+public class AdkEventTranslator {
+
+    private static final Logger log = LoggerFactory.getLogger(AdkEventTranslator.class);
+
+    /**
+     * Name of the {@code CUSTOM} events carrying {@code {"toolCallId":...,"message":{...}}} for each
+     * A2UI message completed in the streamed arguments of a surface call.
+     */
+    public static final String A2UI_MESSAGE_EVENT = "a2ui.message";
+
+    private final ObjectMapper objectMapper;
+    private final A2uiSurfaceDiffer surfaceDiffer;
+    private final String messageId = UUID.randomUUID().toString();
+    private boolean messageStarted = false;
+    private final Map<String, StreamedToolCall> openToolCalls = new LinkedHashMap<>();
+    /** ADK function call id to the AG-UI tool call id it was first streamed under. */
+    private final Map<String, String> toolCallIds = new HashMap<>();
+
+    public AdkEventTranslator(ObjectMapper objectMapper) {
+        this(objectMapper, null);
+    }
+
+    /**
+     * @param surfaceDiffer the thread's record of the surfaces already sent, used to reduce a surface
+     *                      rendered again to what changed; {@code null} sends surfaces in full
+     */
+    AdkEventTranslator(ObjectMapper objectMapper, A2uiSurfaceDiffer surfaceDiffer) {
+        this.objectMapper = objectMapper;
+        this.surfaceDiffer = surfaceDiffer;
+    }
+
+    /**
+     * Maps one ADK event to the AG-UI events it produces, in emission order.
+     */
+    public List<BaseEvent> translate(Event adkEvent) {
+        List<BaseEvent> events = new ArrayList<>();
+        Content content = adkEvent.content().orElse(null);
+        List<Part> parts = content == null ? null : content.parts().orElse(null);
+        if (parts == null) {
+            return events;
+        }
+        for (Part part : parts) {
+            translateText(adkEvent, part, events);
+            translateFunctionCall(adkEvent, part, events);
+            translateFunctionResponse(part, events);
+        }
+        return events;
+    }
+
+    /**
+     * Events closing the run's output once the ADK stream has completed.
+     */
+    public List<BaseEvent> finish() {
+        List<BaseEvent> events = new ArrayList<>();
+        for (StreamedToolCall call : List.copyOf(openToolCalls.values())) {
+            endToolCall(call, events);
+        }
+        // End the text message if we started one
+        if (messageStarted) {
+            var end = new TextMessageEndEvent();
+            end.setMessageId(messageId);
+            events.add(end);
+        }
+        return events;
+    }
+
+    private void translateText(Event adkEvent, Part part, List<BaseEvent> events) {
+        // Handle text parts from the model
+        String text = part.text().orElse(null);
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String author = adkEvent.author();
+
+        // Only emit text from model/agent responses, not user echoes.
+        // Also skip the final consolidated ADK event (partial absent) —
+        // it duplicates the streaming chunks already emitted.
+        if (author == null || author.equals("user") || adkEvent.partial().isEmpty()) {
+            return;
+        }
+        if (!messageStarted) {
+            var start = new TextMessageStartEvent();
+            start.setMessageId(messageId);
+            start.setRole("assistant");
+            events.add(start);
+            messageStarted = true;
+        }
+
+        var contentEvent = new TextMessageContentEvent();
+        contentEvent.setMessageId(messageId);
+        contentEvent.setDelta(text);
+        events.add(contentEvent);
+    }
+
+    private void translateFunctionCall(Event adkEvent, Part part, List<BaseEvent> events) {
+        // Handle function calls (tool invocations)
+        var fc = part.functionCall().orElse(null);
+        if (fc == null) {
+            return;
+        }
+        String name = fc.name().orElse("unknown");
+        boolean partial = adkEvent.partial().orElse(false);
+
+        StreamedToolCall call;
+        String adkId = fc.id().orElse(null);
+        String knownId = adkId == null ? null : toolCallIds.get(adkId);
+        if (knownId != null) {
+            call = openToolCalls.get(knownId);
+            if (call == null) {
+                // Repeated in a later event after it was already completed
+                return;
+            }
+        } else {
+            call = findOpen(name);
+        }
+        if (call == null) {
+            call = startToolCall(adkId != null ? adkId : UUID.randomUUID().toString(), name, events);
+        }
+        call.name = name;
+        if (adkId != null) {
+            toolCallIds.put(adkId, call.id);
+        }
+
+        // Emit tool args as JSON-encoded arguments, a partial call only up to its stable prefix
+        var args = fc.args().orElse(null);
+        if (args != null) {
+            String json = toJson(args);
+            if (!partial && !json.startsWith(call.emitted)) {
+                call = restartToolCall(call, adkId, events);
+            }
+            emitArgs(call, partial ? stablePrefix(json) : json, events);
+        }
+
+        if (!partial) {
+            endToolCall(call, events);
+        }
+    }
+
+    private StreamedToolCall startToolCall(String id, String name, List<BaseEvent> events) {
+        var call = new StreamedToolCall(id);
+        call.name = name;
+        if (SHOW_A2UI_SURFACE.equals(name)) {
+            call.surfaceParser = new A2uiJsonlParser(objectMapper);
+        }
+        openToolCalls.put(call.id, call);
+
+        var toolStart = new ToolCallStartEvent();
+        toolStart.setToolCallId(call.id);
+        toolStart.setToolCallName(name);
+        toolStart.setParentMessageId(messageId);
+        events.add(toolStart);
+        return call;
+    }
+
+    /**
+     * Replaces a call whose final arguments do not extend the deltas already sent, which cannot be
+     * taken back. The stale call is announced as {@value MessageRecorder#TOOL_CALL_SUPERSEDED_EVENT}
+     * and ended, so clients and the recorded history drop it instead of running or waiting on it,
+     * and a new call is started for the final arguments; the ADK call's later events map to it.
+     */
+    private StreamedToolCall restartToolCall(StreamedToolCall stale, String adkId, List<BaseEvent> events) {
+        String id = UUID.randomUUID().toString();
+        log.warn("Final arguments of tool call {} do not extend the streamed ones, resending them as {}",
+            stale.id, id);
+        var value = objectMapper.createObjectNode();
+        value.put("toolCallId", stale.id);
+        value.put("supersededBy", id);
+        var superseded = new CustomEvent();
+        superseded.setName(MessageRecorder.TOOL_CALL_SUPERSEDED_EVENT);
+        superseded.setValue(value);
+        events.add(superseded);
+        endToolCall(stale, events);
+        var call = startToolCall(id, stale.name, events);
+        if (adkId != null) {
+            toolCallIds.put(adkId, call.id);
+        }
+        return call;
+    }
+
+    private StreamedToolCall findOpen(String name) {
+        StreamedToolCall found = null;
+        for (StreamedToolCall call : openToolCalls.values()) {
+            if (name.equals(call.name)) {
+                found = call;
+            }
+        }
+        return found;
+    }
+
+    private void emitArgs(StreamedToolCall call, String args, List<BaseEvent> events) {
+        if (!args.startsWith(call.emitted)) {
+            // Deltas cannot be taken back; wait for the final arguments, which restart the call
+            log.debug("Partial arguments of tool call {} were rewritten while streaming", call.id);
+            return;
+        }
+        if (args.length() == call.emitted.length()) {
+            return;
+        }
+        String delta = args.substring(call.emitted.length());
+        var toolArgs = new ToolCallArgsEvent();
+        toolArgs.setToolCallId(call.id);
+        toolArgs.setDelta(delta);
+        events.add(toolArgs);
+        call.emitted = args;
+
+        if (call.surfaceParser != null) {
+            // Each A2UI message can be painted as soon as its line is complete
+            for (JsonNode parsed : call.surfaceParser.feed(delta)) {
+                List<? extends JsonNode> messages = surfaceDiffer == null
+                    ? List.of(parsed)
+                    : surfaceDiffer.diff(call.id, (ObjectNode) parsed);
+                for (JsonNode message : messages) {
+                    emitSurfaceMessage(call, message, events);
+                }
+            }
+        }
+    }
+
+    private void emitSurfaceMessage(StreamedToolCall call, JsonNode message, List<BaseEvent> events) {
+        var value = objectMapper.createObjectNode();
+        value.put("toolCallId", call.id);
+        value.set("message", message);
+        var custom = new CustomEvent();
+        custom.setName(A2UI_MESSAGE_EVENT);
+        custom.setValue(value);
+        events.add(custom);
+    }
+
+    private void endToolCall(StreamedToolCall call, List<BaseEvent> events) {
+        openToolCalls.remove(call.id);
+        var toolEnd = new ToolCallEndEvent();
+        toolEnd.setToolCallId(call.id);
+        events.add(toolEnd);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            return value.toString();
+        }
+    }
+
+    /**
+     * The part of a partial call's arguments that later snapshots can only extend: the JSON
+     * without the brackets and closing quote that end it. A string, number or container still
+     * being generated grows from there.
+     */
+    static String stablePrefix(String json) {
+        int end = json.length();
+        while (end > 0 && (json.charAt(end - 1) == '}' || json.charAt(end - 1) == ']')) {
+            end--;
+        }
+        if (end > 0 && json.charAt(end - 1) == '"') {
+            end--;
+        }
+        return json.substring(0, end);
+    }
+
+    private void translateFunctionResponse(Part part, List<BaseEvent> events) {
+        // Handle function responses (tool results)
+        var fr = part.functionResponse().orElse(null);
+        if (fr == null) {
+            return;
+        }
+        String adkId = fr.id().orElse(null);
+        String toolCallId = adkId == null ? UUID.randomUUID().toString() : toolCallIds.getOrDefault(adkId, adkId);
+        var call = openToolCalls.get(toolCallId);
+        if (call != null) {
+            endToolCall(call, events);
+        }
+        var toolResult = new ToolCallResultEvent();
+        toolResult.setToolCallId(toolCallId);
+        // Derived from the call so a client sending the result back dedupes against the recorded one
+        toolResult.setMessageId(MessageRecorder.toolResultId(toolCallId));
+        toolResult.setRole(Role.tool);
+        toolResult.setContent(fr.response().map(this::toJson).orElse(""));
+        events.add(toolResult);
+    }
+
+    /**
+     * A tool call opened on the client and the arguments sent for it so far.
+     */
+    private static final class StreamedToolCall {
+
+        private final String id;
+        private String name;
+        private String emitted = "";
+        private A2uiJsonlParser surfaceParser;
+
+        private StreamedToolCall(String id) {
+            this.id = id;
+        }
+    }
+}
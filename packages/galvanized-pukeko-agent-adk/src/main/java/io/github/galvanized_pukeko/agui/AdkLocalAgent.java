@@ -1,12 +1,17 @@
 package io.github.galvanized_pukeko.agui;
 
 import com.agui.core.agent.AgentSubscriber;
-import com.agui.core.agent.AgentSubscriberParams;
 import com.agui.core.agent.RunAgentInput;
 import com.agui.core.event.*;
+import com.agui.core.message.BaseMessage;
 import com.agui.core.message.Role;
-import com.agui.core.state.State;
 import com.agui.server.LocalAgent;
+import com.agui.server.MessageRecorder;
+import com.agui.core.state.State;
+import com.agui.server.RunExecutor;
+import com.agui.server.StateTracker;
+import com.agui.server.ThreadState;
+import com.agui.server.ThreadStateStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.adk.agents.RunConfig;
 import com.google.adk.events.Event;
@@ -15,31 +20,92 @@ import com.google.adk.sessions.BaseSessionService;
 import com.google.genai.types.Content;
 import com.google.genai.types.Part;
 import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
-public class AdkLocalAgent extends LocalAgent {
+public class AdkLocalAgent extends LocalAgent implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(AdkLocalAgent.class);
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int DEFAULT_PLATFORM_THREADS = 64;
+    private static final Duration DEFAULT_THREAD_TTL = Duration.ofMinutes(30);
+    private static final int DEFAULT_MAX_THREADS = 10_000;
+    /** ADK session keys scoped to a single invocation, never shown to the client. */
+    private static final String TEMP_STATE_PREFIX = "temp:";
 
     private final Runner runner;
     private final String appName;
     private final BaseSessionService sessionService;
+    private final Scheduler scheduler;
+    private final ObjectMapper objectMapper;
+    private final boolean ownsExecutor;
 
+    /**
+     * Runs on an executor of its own, which {@link #close()} shuts down.
+     */
     public AdkLocalAgent(String agentId, Runner runner, String appName, BaseSessionService sessionService) throws com.agui.core.exception.AGUIException {
-        super(agentId, new State(), new ArrayList<>());
+        this(agentId, runner, appName, sessionService, RunExecutor.virtualThreads(DEFAULT_PLATFORM_THREADS), new ObjectMapper(),
+            new ThreadStateStore(DEFAULT_THREAD_TTL, DEFAULT_MAX_THREADS), true);
+    }
+
+    public AdkLocalAgent(String agentId, Runner runner, String appName, BaseSessionService sessionService, Executor runExecutor, ObjectMapper objectMapper) throws com.agui.core.exception.AGUIException {
+        this(agentId, runner, appName, sessionService, runExecutor, objectMapper,
+            new ThreadStateStore(DEFAULT_THREAD_TTL, DEFAULT_MAX_THREADS));
+    }
+
+    /**
+     * @param runExecutor  executor runs are dispatched on, owned by the caller. The ADK stream is
+     *                     also subscribed on it, so the runner's model and tool calls execute
+     *                     there too. A {@link RunExecutor} counts runs from dispatch until they
+     *                     finish.
+     * @param objectMapper the application's shared mapper, used to encode tool call arguments
+     * @param threads      per-thread conversation state
+     */
+    public AdkLocalAgent(String agentId, Runner runner, String appName, BaseSessionService sessionService, Executor runExecutor, ObjectMapper objectMapper, ThreadStateStore threads) throws com.agui.core.exception.AGUIException {
+        this(agentId, runner, appName, sessionService, runExecutor, objectMapper, threads, false);
+    }
+
+    private AdkLocalAgent(String agentId, Runner runner, String appName, BaseSessionService sessionService, Executor runExecutor, ObjectMapper objectMapper, ThreadStateStore threads, boolean ownsExecutor) throws com.agui.core.exception.AGUIException {
+        super(agentId, threads, runExecutor);
         this.runner = runner;
         this.appName = appName;
         this.sessionService = sessionService;
+        this.scheduler = Schedulers.from(runExecutor, true);
+        this.objectMapper = objectMapper;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Shuts down the run executor if this agent created it; an injected one is left to its owner.
+     */
+    @Override
+    public void close() throws Exception {
+        if (ownsExecutor && runExecutor instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
     }
 
+    /**
+     * Starts the run and returns immediately. The ADK event stream is translated and pushed to
+     * the subscriber as it arrives, so no thread is parked waiting on the stream. Cancelling
+     * {@code future} disposes the ADK subscription, which stops the model stream.
+     */
     @Override
-    protected void run(RunAgentInput input, AgentSubscriber subscriber) {
+    protected void run(RunAgentInput input, ThreadState thread, AgentSubscriber subscriber, CompletableFuture<Void> future) {
+        if (future.isDone()) {
+            return;
+        }
+
         String threadId = input.threadId();
         String runId = input.runId();
 
@@ -49,134 +115,109 @@ public class AdkLocalAgent extends LocalAgent {
         runStarted.setRunId(runId);
         emitEvent(runStarted, subscriber);
 
-        try {
-            // Extract the last user message text
-            String userText = "";
-            if (input.messages() != null) {
-                for (var msg : input.messages()) {
-                    if (msg.getRole() == Role.user) {
-                        userText = msg.getContent();
-                    }
-                }
-            }
+        // The input is already merged into the thread, whose role index holds the last user message
+        String userText = thread.getLatestMessage(Role.user)
+            .map(BaseMessage::getContent)
+            .orElse("");
 
-            if (userText.isEmpty()) {
-                throw new RuntimeException("No user message found in AG-UI request");
-            }
+        if (userText.isEmpty()) {
+            fail(input, thread, subscriber, future, new RuntimeException("No user message found in AG-UI request"));
+            return;
+        }
 
-            // Use threadId as sessionId for consistency
-            String userId = "user";
-            String sessionId = threadId;
-
-            // Build ADK Content from user message
-            Content userContent = Content.fromParts(Part.fromText(userText));
-
-            // Run the agent via ADK Runner — autoCreateSession will create if not exists
-            RunConfig runConfig = RunConfig.builder()
-                .setStreamingMode(RunConfig.StreamingMode.SSE)
-                .setAutoCreateSession(true)
-                .build();
-
-            Flowable<Event> adkEvents = runner.runAsync(userId, sessionId, userContent, runConfig);
-
-            // Translate ADK events to AG-UI events
-            String messageId = UUID.randomUUID().toString();
-            boolean messageStarted = false;
-
-            for (Event adkEvent : adkEvents.blockingIterable()) {
-                if (adkEvent.content().isPresent()) {
-                    Content content = adkEvent.content().get();
-                    if (content.parts().isPresent()) {
-                        for (Part part : content.parts().get()) {
-                            // Handle text parts from the model
-                            if (part.text().isPresent() && !part.text().get().isEmpty()) {
-                                String text = part.text().get();
-                                String author = adkEvent.author();
-
-                                // Only emit text from model/agent responses, not user echoes.
-                                // Also skip the final consolidated ADK event (partial absent) —
-                                // it duplicates the streaming chunks already emitted.
-                                if (author != null && !author.equals("user")
-                                        && adkEvent.partial().isPresent()) {
-                                    if (!messageStarted) {
-                                        var start = new TextMessageStartEvent();
-                                        start.setMessageId(messageId);
-                                        start.setRole("assistant");
-                                        emitEvent(start, subscriber);
-                                        messageStarted = true;
-                                    }
-
-                                    var contentEvent = new TextMessageContentEvent();
-                                    contentEvent.setMessageId(messageId);
-                                    contentEvent.setDelta(text);
-                                    emitEvent(contentEvent, subscriber);
-                                }
-                            }
-
-                            // Handle function calls (tool invocations)
-                            if (part.functionCall().isPresent()) {
-                                var fc = part.functionCall().get();
-                                String toolCallId = fc.id().orElse(UUID.randomUUID().toString());
-
-                                var toolStart = new ToolCallStartEvent();
-                                toolStart.setToolCallId(toolCallId);
-                                toolStart.setToolCallName(fc.name().orElse("unknown"));
-                                toolStart.setParentMessageId(messageId);
-                                emitEvent(toolStart, subscriber);
-
-                                // Emit tool args as JSON-encoded arguments
-                                if (fc.args().isPresent()) {
-                                    var toolArgs = new ToolCallArgsEvent();
-                                    toolArgs.setToolCallId(toolCallId);
-                                    try {
-                                        toolArgs.setDelta(objectMapper.writeValueAsString(fc.args().get()));
-                                    } catch (Exception e) {
-                                        toolArgs.setDelta(fc.args().get().toString());
-                                    }
-                                    emitEvent(toolArgs, subscriber);
-                                }
-
-                                var toolEnd = new ToolCallEndEvent();
-                                toolEnd.setToolCallId(toolCallId);
-                                emitEvent(toolEnd, subscriber);
-                            }
-
-                            // Handle function responses (tool results)
-                            if (part.functionResponse().isPresent()) {
-                                var fr = part.functionResponse().get();
-                                String toolCallId = fr.id().orElse(UUID.randomUUID().toString());
-                                var toolResult = new ToolCallResultEvent();
-                                toolResult.setToolCallId(toolCallId);
-                                toolResult.setContent(fr.response().isPresent() ? fr.response().get().toString() : "");
-                                emitEvent(toolResult, subscriber);
-                            }
-                        }
-                    }
-                }
+        // Use threadId as sessionId for consistency
+        String userId = "user";
+        String sessionId = threadId;
+
+        // Build ADK Content from user message
+        Content userContent = Content.fromParts(Part.fromText(userText));
+
+        // Run the agent via ADK Runner — autoCreateSession will create if not exists
+        RunConfig runConfig = RunConfig.builder()
+            .setStreamingMode(RunConfig.StreamingMode.SSE)
+            .setAutoCreateSession(true)
+            .build();
+
+        // Surfaces the client still holds are sent again only as far as they changed
+        var surfaceDiffer = thread.getAttachment(A2uiSurfaceDiffer.class, A2uiSurfaceDiffer::new);
+        surfaceDiffer.resync(input.forwardedProps());
+        // Translate ADK events to AG-UI events
+        var translator = new AdkEventTranslator(objectMapper, surfaceDiffer);
+        // The reply is kept on the thread so a client need not send it back
+        var recorder = new MessageRecorder();
+        // The client starts the run holding the thread's state; session changes go out as patches
+        var stateTracker = thread.getAttachment(StateTracker.class, () -> new StateTracker(objectMapper));
+        stateTracker.reset(thread.getState());
+
+        Disposable subscription = Flowable.defer(() -> runner.runAsync(userId, sessionId, userContent, runConfig))
+            .subscribeOn(scheduler)
+            .concatMapIterable(adkEvent -> translate(adkEvent, translator, thread, stateTracker))
+            .subscribe(
+                event -> {
+                    recorder.record(event);
+                    emitEvent(event, subscriber);
+                },
+                error -> {
+                    thread.merge(recorder.getMessages());
+                    fail(input, thread, subscriber, future, error);
+                },
+                () -> finish(input, thread, subscriber, future, translator, recorder)
+            );
+
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled() && !subscription.isDisposed()) {
+                log.info("AG-UI run {} cancelled, disposing ADK stream", runId);
+                subscription.dispose();
             }
+        });
+    }
 
-            // End the text message if we started one
-            if (messageStarted) {
-                var end = new TextMessageEndEvent();
-                end.setMessageId(messageId);
-                emitEvent(end, subscriber);
+    private List<BaseEvent> translate(Event adkEvent, AdkEventTranslator translator, ThreadState thread, StateTracker stateTracker) {
+        List<BaseEvent> events = translator.translate(adkEvent);
+        Map<String, Object> stateDelta = adkEvent.actions() == null ? null : adkEvent.actions().stateDelta();
+        if (stateDelta == null || stateDelta.isEmpty()) {
+            return events;
+        }
+        // Copied only here, so streamed tokens pass through without a second list
+        events = new ArrayList<>(events);
+        Map<String, Object> changes = new HashMap<>();
+        stateDelta.forEach((key, value) -> {
+            if (!key.startsWith(TEMP_STATE_PREFIX)) {
+                changes.put(key, value);
             }
+        });
+        State current = thread.getState();
+        State next = current == null ? new State(changes) : current.withAll(changes);
+        thread.setState(next);
+        stateTracker.update(next).ifPresent(events::add);
+        return events;
+    }
 
-            // Emit RUN_FINISHED
-            var runFinished = new RunFinishedEvent();
-            runFinished.setThreadId(threadId);
-            runFinished.setRunId(runId);
-            emitEvent(runFinished, subscriber);
-
-            // Signal completion
-            subscriber.onRunFinalized(new AgentSubscriberParams(messages, this.state, this, input));
-
-        } catch (Exception e) {
-            log.error("Error during AG-UI agent run", e);
-            var errorEvent = new RunErrorEvent();
-            errorEvent.setError(e.getMessage());
-            emitEvent(errorEvent, subscriber);
-            subscriber.onRunFailed(new AgentSubscriberParams(messages, this.state, this, input), e);
-        }
+    private void finish(RunAgentInput input, ThreadState thread, AgentSubscriber subscriber, CompletableFuture<Void> future,
+                        AdkEventTranslator translator, MessageRecorder recorder) {
+        translator.finish().forEach(event -> {
+            recorder.record(event);
+            emitEvent(event, subscriber);
+        });
+        thread.merge(recorder.getMessages());
+
+        // Emit RUN_FINISHED
+        var runFinished = new RunFinishedEvent();
+        runFinished.setThreadId(input.threadId());
+        runFinished.setRunId(input.runId());
+        emitEvent(runFinished, subscriber);
+
+        // Signal completion
+        subscriber.onRunFinalized(subscriberParams(input, thread));
+        future.complete(null);
+    }
+
+    private void fail(RunAgentInput input, ThreadState thread, AgentSubscriber subscriber, CompletableFuture<Void> future, Throwable e) {
+        log.error("Error during AG-UI agent run", e);
+        var errorEvent = new RunErrorEvent();
+        errorEvent.setError(e.getMessage());
+        emitEvent(errorEvent, subscriber);
+        subscriber.onRunFailed(subscriberParams(input, thread), e);
+        future.completeExceptionally(e);
     }
 }
@@ -1,29 +1,131 @@
 package io.github.galvanized_pukeko.agui;
 
+import com.agui.json.EventEncoding;
+import com.agui.server.journal.JournalSnapshot;
 import com.agui.server.spring.AgUiParameters;
 import com.agui.server.spring.AgUiService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 @RestController
+@ConditionalOnProperty(name = "pukeko.agui.transport", havingValue = "servlet", matchIfMissing = true)
 public class AgUiController {
 
     private static final Logger log = LoggerFactory.getLogger(AgUiController.class);
 
     private final AgUiService agUiService;
     private final AdkLocalAgent adkLocalAgent;
+    private final ObjectMapper objectMapper;
 
-    public AgUiController(AgUiService agUiService, AdkLocalAgent adkLocalAgent) {
+    public AgUiController(AgUiService agUiService, AdkLocalAgent adkLocalAgent, ObjectMapper objectMapper) {
         this.agUiService = agUiService;
         this.adkLocalAgent = adkLocalAgent;
+        this.objectMapper = objectMapper;
     }
 
-    @PostMapping(value = "/agents/{agentId}/run", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter runAgent(@PathVariable String agentId, @RequestBody AgUiParameters params) {
+    @PostMapping(value = "/agents/{agentId}/run", produces = {MediaType.TEXT_EVENT_STREAM_VALUE,
+        EventEncoding.MediaTypes.COMPACT_JSON, EventEncoding.MediaTypes.SMILE, EventEncoding.MediaTypes.CBOR})
+    public SseEmitter runAgent(@PathVariable String agentId, @RequestBody AgUiParameters params,
+                               @RequestParam(required = false) String encoding,
+                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                               @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
         log.info("AG-UI run request for agent: {}, threadId: {}", agentId, params.getThreadId());
-        return agUiService.runAgent(adkLocalAgent, params);
+        // A client retrying a dropped run resumes it rather than starting the LLM call over
+        if (lastEventId != null && params.getRunId() != null) {
+            var resumed = agUiService.resume(params.getRunId(), lastEventId);
+            if (resumed.isPresent()) {
+                return resumed.get();
+            }
+        }
+        return agUiService.runAgent(adkLocalAgent, params, sseEncoding(encoding, accept));
+    }
+
+    /**
+     * Starts the run in the background and answers with its id straight away. The events are
+     * followed with {@code GET .../runs/{runId}/events} or polled with {@code GET .../runs/{runId}}.
+     * Matched whatever the Accept header says, as SSE clients send {@code text/event-stream}, so a
+     * detached request never falls through to an attached run; the answer is always JSON.
+     */
+    @PostMapping(value = "/agents/{agentId}/run", params = "detached=true")
+    public ResponseEntity<Map<String, String>> startDetached(@PathVariable String agentId, @RequestBody AgUiParameters params,
+                                                             @RequestParam(required = false) String encoding,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.info("AG-UI detached run request for agent: {}, threadId: {}", agentId, params.getThreadId());
+        String runId;
+        try {
+            runId = agUiService.startDetached(adkLocalAgent, params, sseEncoding(encoding, accept));
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+        return ResponseEntity.accepted()
+            .contentType(MediaType.APPLICATION_JSON)
+            .location(URI.create("/agents/" + agentId + "/runs/" + runId + "/events"))
+            .body(Map.of("runId", runId));
+    }
+
+    /**
+     * The events of a run after {@code after} collected so far, and whether the run has finished.
+     */
+    @GetMapping(value = "/agents/{agentId}/runs/{runId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public RunEvents runSnapshot(@PathVariable String agentId, @PathVariable String runId,
+                                 @RequestParam(defaultValue = "0") long after) throws IOException {
+        JournalSnapshot snapshot = agUiService.fetch(runId, after)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No journal for run " + runId));
+        List<JsonNode> events = new ArrayList<>(snapshot.entries().size());
+        for (JournalSnapshot.Entry entry : snapshot.entries()) {
+            ByteBuffer payload = entry.payload();
+            events.add(objectMapper.readTree(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining()));
+        }
+        return new RunEvents(snapshot.runId(), snapshot.finished(), snapshot.error(), snapshot.lastEventId(), events);
+    }
+
+    /**
+     * Response of {@link #runSnapshot}; {@code lastEventId} is the {@code after} for the next poll.
+     */
+    public record RunEvents(String runId, boolean finished, String error, long lastEventId, List<JsonNode> events) {
+    }
+
+    @GetMapping(value = "/agents/{agentId}/runs/{runId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter runEvents(@PathVariable String agentId, @PathVariable String runId,
+                                @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        log.info("AG-UI resume request for agent: {}, runId: {}, after event: {}", agentId, runId, lastEventId);
+        return agUiService.resume(runId, lastEventId == null ? 0 : lastEventId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No journal for run " + runId));
+    }
+
+    /**
+     * Resolves the event encoding requested by {@code ?encoding=} or the Accept header. The run
+     * endpoints list every encoding in {@code produces} so an Accept header naming one reaches this
+     * method; binary encodings are then refused, as they are only available over the WebSocket endpoint.
+     */
+    static EventEncoding sseEncoding(String encoding, String accept) {
+        EventEncoding negotiated;
+        try {
+            negotiated = EventEncoding.negotiate(encoding, accept);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (negotiated.isBinary()) {
+            throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE,
+                "Encoding " + negotiated.getName() + " is only available over WebSocket");
+        }
+        return negotiated;
     }
 }
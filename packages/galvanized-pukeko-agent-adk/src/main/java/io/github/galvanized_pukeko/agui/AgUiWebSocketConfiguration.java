@@ -0,0 +1,52 @@
+package io.github.galvanized_pukeko.agui;
+
+import com.agui.server.spring.AgUiParametersReader;
+import com.agui.server.spring.AgUiService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.galvanized_pukeko.config.AgUiProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Registers the multiplexed AG-UI WebSocket endpoint next to the SSE one.
+ */
+@Configuration
+@EnableWebSocket
+@ConditionalOnProperty(name = "pukeko.agui.websocket.enabled", havingValue = "true", matchIfMissing = true)
+public class AgUiWebSocketConfiguration implements WebSocketConfigurer {
+
+    /**
+     * Room for the {@code {"type":"run","input":...}} envelope around a run request body.
+     */
+    private static final int ENVELOPE_BYTES = 1024;
+
+    private final AgUiProperties agUiProperties;
+    private final AgUiWebSocketHandler agUiWebSocketHandler;
+
+    public AgUiWebSocketConfiguration(AgUiProperties agUiProperties, AgUiService agUiService,
+                                      AdkLocalAgent adkLocalAgent, ObjectMapper objectMapper,
+                                      AgUiParametersReader agUiParametersReader) {
+        AgUiProperties.WebSocket webSocket = agUiProperties.getWebsocket();
+        this.agUiProperties = agUiProperties;
+        this.agUiWebSocketHandler = new AgUiWebSocketHandler(agUiService, adkLocalAgent, objectMapper, agUiParametersReader,
+            (int) webSocket.getSendTimeLimit().toMillis(), (int) webSocket.getBufferSizeLimit().toBytes(),
+            maxTextMessageSize(agUiProperties), webSocket.getMaxRunsPerConnection());
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        AgUiProperties.WebSocket webSocket = agUiProperties.getWebsocket();
+        var registration = registry.addHandler(agUiWebSocketHandler, webSocket.getPath());
+        if (!webSocket.getAllowedOrigins().isEmpty()) {
+            registration.setAllowedOriginPatterns(webSocket.getAllowedOrigins().toArray(String[]::new));
+        }
+    }
+
+    private static int maxTextMessageSize(AgUiProperties agUiProperties) {
+        long maxBodySize = agUiProperties.getRequest().getMaxBodySize().toBytes();
+        return maxBodySize > 0 ? (int) Math.min(Integer.MAX_VALUE, maxBodySize + ENVELOPE_BYTES) : 0;
+    }
+}
@@ -0,0 +1,252 @@
+package io.github.galvanized_pukeko.agui;
+
+import com.agui.core.event.BaseEvent;
+import com.agui.core.stream.IEventStream;
+import com.agui.json.EventEncoding;
+import com.agui.json.EventWriters;
+import com.agui.server.spring.AgUiParameters;
+import com.agui.server.spring.AgUiParametersReader;
+import com.agui.server.spring.AgUiService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AG-UI over a single WebSocket connection carrying any number of concurrent runs.
+ *
+ * <p>Clients send {@code {"type":"run","input":{...}}} with the same body as
+ * {@code POST /agents/{agentId}/run}, and {@code {"type":"cancel","runId":"..."}} to stop a run.
+ * Every event is sent back as {@code {"runId":"...","event":{...}}}; a failed run or a rejected
+ * request is answered with {@code {"runId":"...","error":"..."}}. Closing the connection cancels
+ * all of its runs. A frame larger than the run request body limit is refused, and a connection
+ * may only have a limited number of runs in flight.
+ *
+ * <p>Outgoing messages use the encoding named by the handshake's {@code encoding} query parameter
+ * or {@code Accept} header; Smile and CBOR are sent as binary frames. Requests are always JSON text.
+ */
+public class AgUiWebSocketHandler extends TextWebSocketHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(AgUiWebSocketHandler.class);
+
+    private final AgUiService agUiService;
+    private final AdkLocalAgent adkLocalAgent;
+    private final ObjectMapper objectMapper;
+    private final EventWriters eventWriters;
+    private final AgUiParametersReader parametersReader;
+    private final int sendTimeLimitMillis;
+    private final int bufferSizeLimit;
+    private final int maxMessageSize;
+    private final int maxRuns;
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    public AgUiWebSocketHandler(AgUiService agUiService, AdkLocalAgent adkLocalAgent,
+                                ObjectMapper objectMapper, AgUiParametersReader parametersReader,
+                                int sendTimeLimitMillis, int bufferSizeLimit, int maxMessageSize, int maxRuns) {
+        this.agUiService = agUiService;
+        this.adkLocalAgent = adkLocalAgent;
+        this.objectMapper = objectMapper;
+        this.eventWriters = new EventWriters(objectMapper);
+        this.parametersReader = parametersReader;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.maxMessageSize = maxMessageSize;
+        this.maxRuns = maxRuns;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        if (maxMessageSize > 0) {
+            // Per session, so the container rejects an oversized frame before buffering it while
+            // other endpoints keep the container-wide limit
+            session.setTextMessageSizeLimit(maxMessageSize);
+        }
+        EventEncoding encoding;
+        try {
+            encoding = EventEncoding.negotiate(
+                UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("encoding"),
+                session.getHandshakeHeaders().getFirst(HttpHeaders.ACCEPT));
+        } catch (IllegalArgumentException e) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason(e.getMessage()));
+            return;
+        }
+        // The decorator serializes sends from concurrent runs and closes the session if the client stops reading
+        var connection = new Connection(
+            new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMillis, bufferSizeLimit), encoding);
+        connections.put(session.getId(), connection);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        Connection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+        // The session limit already caps frames; this covers containers that hand over larger ones
+        if (maxMessageSize > 0 && message.getPayloadLength() > maxMessageSize) {
+            session.close(CloseStatus.TOO_BIG_TO_PROCESS);
+            return;
+        }
+        JsonNode request;
+        try {
+            request = objectMapper.readTree(message.getPayload());
+        } catch (IOException e) {
+            connection.sendError(null, "Malformed message: " + e.getMessage());
+            return;
+        }
+        String type = request.path("type").asText();
+        switch (type) {
+            case "run" -> startRun(connection, request.path("input"));
+            case "cancel" -> connection.cancel(request.path("runId").asText(null));
+            default -> connection.sendError(request.path("runId").asText(null), "Unknown message type: " + type);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection connection = connections.remove(session.getId());
+        if (connection != null) {
+            connection.cancelAll();
+        }
+    }
+
+    private void startRun(Connection connection, JsonNode input) throws IOException {
+        AgUiParameters params;
+        try {
+            params = parametersReader.read(objectMapper.treeAsTokens(input));
+        } catch (IOException e) {
+            connection.sendError(null, "Invalid run input: " + e.getMessage());
+            return;
+        }
+        if (params.getRunId() == null) {
+            params.setRunId(UUID.randomUUID().toString());
+        }
+        String runId = params.getRunId();
+        // Messages of a session are handled one at a time, so only finishing runs race with this check
+        if (maxRuns > 0 && connection.runs.size() >= maxRuns) {
+            connection.sendError(runId, "Too many active runs: " + maxRuns);
+            return;
+        }
+        var run = new Run();
+        if (connection.runs.putIfAbsent(runId, run) != null) {
+            connection.sendError(runId, "Run already active: " + runId);
+            return;
+        }
+        log.info("AG-UI WebSocket run request, threadId: {}, runId: {}", params.getThreadId(), runId);
+
+        run.attach(agUiService.runAgent(
+            adkLocalAgent,
+            params,
+            event -> connection.sendEvent(runId, event),
+            error -> {
+                connection.runs.remove(runId, run);
+                connection.sendErrorQuietly(runId, error.getMessage());
+            },
+            () -> connection.runs.remove(runId, run)
+        ));
+    }
+
+    /**
+     * A run of a connection. Cancelling it before its stream is attached cancels the stream as
+     * soon as it is.
+     */
+    private static final class Run {
+
+        private IEventStream<BaseEvent> stream;
+        private boolean cancelled;
+
+        private synchronized void attach(IEventStream<BaseEvent> stream) {
+            this.stream = stream;
+            if (cancelled) {
+                stream.cancel();
+            }
+        }
+
+        private synchronized void cancel() {
+            cancelled = true;
+            if (stream != null) {
+                stream.cancel();
+            }
+        }
+    }
+
+    /**
+     * One client connection and the runs it has in flight.
+     */
+    private final class Connection {
+
+        private final WebSocketSession session;
+        private final EventEncoding encoding;
+        private final Map<String, Run> runs = new ConcurrentHashMap<>();
+
+        private Connection(WebSocketSession session, EventEncoding encoding) {
+            this.session = session;
+            this.encoding = encoding;
+        }
+
+        private void sendEvent(String runId, BaseEvent event) {
+            try {
+                var bytes = new ByteArrayOutputStream();
+                try (JsonGenerator generator = eventWriters.getObjectMapper(encoding).getFactory().createGenerator(bytes)) {
+                    generator.writeStartObject();
+                    generator.writeStringField("runId", runId);
+                    generator.writeFieldName("event");
+                    eventWriters.writerFor(encoding, event).writeValue(generator, event);
+                    generator.writeEndObject();
+                }
+                send(bytes.toByteArray());
+            } catch (IOException e) {
+                log.warn("Failed to send AG-UI event for run {}: {}", runId, e.getMessage());
+                cancel(runId);
+            }
+        }
+
+        private void sendError(String runId, String error) throws IOException {
+            var body = objectMapper.createObjectNode();
+            body.put("runId", runId);
+            body.put("error", error);
+            send(eventWriters.getObjectMapper(encoding).writeValueAsBytes(body));
+        }
+
+        private void send(byte[] payload) throws IOException {
+            session.sendMessage(encoding.isBinary() ? new BinaryMessage(payload) : new TextMessage(payload));
+        }
+
+        private void sendErrorQuietly(String runId, String error) {
+            try {
+                sendError(runId, error);
+            } catch (IOException e) {
+                log.warn("Failed to send AG-UI error for run {}: {}", runId, e.getMessage());
+            }
+        }
+
+        private void cancel(String runId) {
+            if (runId == null) {
+                return;
+            }
+            Run run = runs.remove(runId);
+            if (run != null) {
+                run.cancel();
+            }
+        }
+
+        private void cancelAll() {
+            runs.keySet().forEach(this::cancel);
+        }
+    }
+}
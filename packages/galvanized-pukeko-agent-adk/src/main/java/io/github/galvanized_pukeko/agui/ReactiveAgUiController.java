@@ -0,0 +1,41 @@
+package io.github.galvanized_pukeko.agui;
+
+import com.agui.json.EventEncoding;
+import com.agui.server.spring.AgUiParameters;
+import com.agui.server.spring.AgUiService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+/**
+ * Same contract as {@link AgUiController}, but streams the run as a {@link Flux} that is only
+ * drained as fast as the client reads. Enabled with {@code pukeko.agui.transport=reactive}.
+ */
+@RestController
+@ConditionalOnProperty(name = "pukeko.agui.transport", havingValue = "reactive")
+public class ReactiveAgUiController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveAgUiController.class);
+
+    private final AgUiService agUiService;
+    private final AdkLocalAgent adkLocalAgent;
+
+    public ReactiveAgUiController(AgUiService agUiService, AdkLocalAgent adkLocalAgent) {
+        this.agUiService = agUiService;
+        this.adkLocalAgent = adkLocalAgent;
+    }
+
+    @PostMapping(value = "/agents/{agentId}/run", produces = {MediaType.TEXT_EVENT_STREAM_VALUE,
+        EventEncoding.MediaTypes.COMPACT_JSON, EventEncoding.MediaTypes.SMILE, EventEncoding.MediaTypes.CBOR})
+    public Flux<ServerSentEvent<Object>> runAgent(@PathVariable String agentId, @RequestBody AgUiParameters params,
+                                                  @RequestParam(required = false) String encoding,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.info("AG-UI reactive run request for agent: {}, threadId: {}", agentId, params.getThreadId());
+        return agUiService.runAgentFlux(adkLocalAgent, params, AgUiController.sseEncoding(encoding, accept));
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.galvanized_pukeko.agui;
+
+import io.github.galvanized_pukeko.SurfaceStore;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Optional;
+
+/**
+ * Serves the A2UI JSONL of surfaces the agent rendered, by the {@code surfaceRef} its tool result
+ * carries or by surface id for the latest version. A surface is only served for the agent, named
+ * by its id or the {@code default} the bundled client uses, and the thread that rendered it; any
+ * other lookup is answered as not found.
+ */
+@RestController
+public class SurfaceController {
+
+    private static final String DEFAULT_AGENT_ID = "default";
+
+    private final SurfaceStore surfaceStore;
+    private final AdkLocalAgent adkLocalAgent;
+
+    public SurfaceController(SurfaceStore surfaceStore, AdkLocalAgent adkLocalAgent) {
+        this.surfaceStore = surfaceStore;
+        this.adkLocalAgent = adkLocalAgent;
+    }
+
+    @GetMapping(value = "/agents/{agentId}/surfaces/{ref}", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String surface(@PathVariable String agentId, @PathVariable String ref, @RequestParam String threadId) {
+        return Optional.of(agentId)
+            .filter(id -> id.equals(adkLocalAgent.getAgentId()) || id.equals(DEFAULT_AGENT_ID))
+            .flatMap(id -> surfaceStore.get(threadId, ref))
+            .map(SurfaceStore.Surface::jsonl)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No surface " + ref));
+    }
+}
@@ -0,0 +1,653 @@
+package io.github.galvanized_pukeko.config;
+
+import com.agui.core.stream.OverflowPolicy;
+import com.agui.server.HistoryMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuration for the AG-UI endpoint and the agent runs it starts.
+ * Defaults are loaded from pukeko-defaults.properties via PukekoDefaultsConfiguration.
+ */
+@Component
+@ConfigurationProperties(prefix = "pukeko.agui")
+public class AgUiProperties {
+
+  private Runs runs = new Runs();
+  private Coalesce coalesce = new Coalesce();
+  private Buffer buffer = new Buffer();
+  private Stream stream = new Stream();
+  private WebSocket websocket = new WebSocket();
+  private Journal journal = new Journal();
+  private Sse sse = new Sse();
+  private Threads threads = new Threads();
+  private Request request = new Request();
+  private Surfaces surfaces = new Surfaces();
+
+  public Runs getRuns() {
+    return runs;
+  }
+
+  public void setRuns(Runs runs) {
+    this.runs = runs;
+  }
+
+  public Coalesce getCoalesce() {
+    return coalesce;
+  }
+
+  public void setCoalesce(Coalesce coalesce) {
+    this.coalesce = coalesce;
+  }
+
+  public Buffer getBuffer() {
+    return buffer;
+  }
+
+  public void setBuffer(Buffer buffer) {
+    this.buffer = buffer;
+  }
+
+  public Stream getStream() {
+    return stream;
+  }
+
+  public void setStream(Stream stream) {
+    this.stream = stream;
+  }
+
+  public WebSocket getWebsocket() {
+    return websocket;
+  }
+
+  public void setWebsocket(WebSocket websocket) {
+    this.websocket = websocket;
+  }
+
+  public Journal getJournal() {
+    return journal;
+  }
+
+  public void setJournal(Journal journal) {
+    this.journal = journal;
+  }
+
+  public Sse getSse() {
+    return sse;
+  }
+
+  public void setSse(Sse sse) {
+    this.sse = sse;
+  }
+
+  public Threads getThreads() {
+    return threads;
+  }
+
+  public void setThreads(Threads threads) {
+    this.threads = threads;
+  }
+
+  public Request getRequest() {
+    return request;
+  }
+
+  public void setRequest(Request request) {
+    this.request = request;
+  }
+
+  public Surfaces getSurfaces() {
+    return surfaces;
+  }
+
+  public void setSurfaces(Surfaces surfaces) {
+    this.surfaces = surfaces;
+  }
+
+  @Override
+  public String toString() {
+    return "AgUiProperties{" +
+        "runs=" + runs +
+        ", coalesce=" + coalesce +
+        ", buffer=" + buffer +
+        ", stream=" + stream +
+        ", websocket=" + websocket +
+        ", journal=" + journal +
+        ", sse=" + sse +
+        ", threads=" + threads +
+        ", request=" + request +
+        ", surfaces=" + surfaces +
+        '}';
+  }
+
+  public static class Runs {
+
+    /**
+     * Run each agent run on its own virtual thread when the JVM supports it (JDK 21+).
+     */
+    private boolean virtualThreads = true;
+
+    /**
+     * Size of the platform thread pool used when virtual threads are disabled or unavailable.
+     */
+    private int platformThreads = 64;
+
+    public boolean isVirtualThreads() {
+      return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+      this.virtualThreads = virtualThreads;
+    }
+
+    public int getPlatformThreads() {
+      return platformThreads;
+    }
+
+    public void setPlatformThreads(int platformThreads) {
+      this.platformThreads = platformThreads;
+    }
+
+    @Override
+    public String toString() {
+      return "Runs{" +
+          "virtualThreads=" + virtualThreads +
+          ", platformThreads=" + platformThreads +
+          '}';
+    }
+  }
+
+  public static class Coalesce {
+
+    /**
+     * Merge consecutive TEXT_MESSAGE_CONTENT deltas of a message into fewer SSE frames.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Longest time a delta is held back waiting for more.
+     */
+    private Duration window = Duration.ofMillis(15);
+
+    /**
+     * Merged delta size (UTF-8 bytes) at which it is sent without waiting for the window.
+     */
+    private int maxBytes = 512;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+      return window;
+    }
+
+    public void setWindow(Duration window) {
+      this.window = window;
+    }
+
+    public int getMaxBytes() {
+      return maxBytes;
+    }
+
+    public void setMaxBytes(int maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public String toString() {
+      return "Coalesce{" +
+          "enabled=" + enabled +
+          ", window=" + window +
+          ", maxBytes=" + maxBytes +
+          '}';
+    }
+  }
+
+  public static class Buffer {
+
+    /**
+     * Queue events per client and write them off the run thread, so a slow client cannot stall the run.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Events a client may fall behind by before the overflow policy applies.
+     */
+    private int capacity = 256;
+
+    /**
+     * What to do when the buffer is full: COALESCE_TEXT, LATEST_SNAPSHOT or DISCONNECT.
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.COALESCE_TEXT;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getCapacity() {
+      return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+      this.capacity = capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+      return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+      this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public String toString() {
+      return "Buffer{" +
+          "enabled=" + enabled +
+          ", capacity=" + capacity +
+          ", overflowPolicy=" + overflowPolicy +
+          '}';
+    }
+  }
+
+  public static class Stream {
+
+    /**
+     * Write events through a lock-free queue drained by one thread at a time instead of a lock.
+     */
+    private boolean serialized = false;
+
+    public boolean isSerialized() {
+      return serialized;
+    }
+
+    public void setSerialized(boolean serialized) {
+      this.serialized = serialized;
+    }
+
+    @Override
+    public String toString() {
+      return "Stream{" +
+          "serialized=" + serialized +
+          '}';
+    }
+  }
+
+  public static class WebSocket {
+
+    /**
+     * Expose the multiplexed AG-UI WebSocket endpoint.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Path of the WebSocket endpoint.
+     */
+    private String path = "/agents/ws";
+
+    /**
+     * Origin patterns allowed to connect; same-origin only when empty.
+     */
+    private List<String> allowedOrigins = new ArrayList<>();
+
+    /**
+     * Longest a single send may take before the connection is closed as too slow.
+     */
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+
+    /**
+     * Outgoing data buffered for a slow connection before it is closed.
+     */
+    private DataSize bufferSizeLimit = DataSize.ofMegabytes(1);
+
+    /**
+     * Runs one connection may have in flight; further run requests are refused. 0 disables.
+     */
+    private int maxRunsPerConnection = 8;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public void setPath(String path) {
+      this.path = path;
+    }
+
+    public List<String> getAllowedOrigins() {
+      return allowedOrigins;
+    }
+
+    public void setAllowedOrigins(List<String> allowedOrigins) {
+      this.allowedOrigins = allowedOrigins;
+    }
+
+    public Duration getSendTimeLimit() {
+      return sendTimeLimit;
+    }
+
+    public void setSendTimeLimit(Duration sendTimeLimit) {
+      this.sendTimeLimit = sendTimeLimit;
+    }
+
+    public DataSize getBufferSizeLimit() {
+      return bufferSizeLimit;
+    }
+
+    public void setBufferSizeLimit(DataSize bufferSizeLimit) {
+      this.bufferSizeLimit = bufferSizeLimit;
+    }
+
+    public int getMaxRunsPerConnection() {
+      return maxRunsPerConnection;
+    }
+
+    public void setMaxRunsPerConnection(int maxRunsPerConnection) {
+      this.maxRunsPerConnection = maxRunsPerConnection;
+    }
+
+    @Override
+    public String toString() {
+      return "WebSocket{" +
+          "enabled=" + enabled +
+          ", path='" + path + '\'' +
+          ", allowedOrigins=" + allowedOrigins +
+          ", sendTimeLimit=" + sendTimeLimit +
+          ", bufferSizeLimit=" + bufferSizeLimit +
+          ", maxRunsPerConnection=" + maxRunsPerConnection +
+          '}';
+    }
+  }
+
+  public static class Journal {
+
+    /**
+     * Record SSE runs so a client can resume them with Last-Event-ID after losing the connection.
+     * Off by default: a journaled run outlives its client for the detach grace period.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Most recent events kept per run.
+     */
+    private int capacity = 1024;
+
+    /**
+     * How long a finished run's journal is kept after its last activity.
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+
+    /**
+     * How long a run keeps going with no client attached before it is cancelled; 0 cancels it as
+     * soon as the last client leaves.
+     */
+    private Duration detachGrace = Duration.ofSeconds(30);
+
+    /**
+     * Let a request with the same thread and messages as an in-flight run join that run.
+     */
+    private boolean dedupe = true;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getCapacity() {
+      return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+      this.capacity = capacity;
+    }
+
+    public Duration getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+      this.ttl = ttl;
+    }
+
+    public Duration getDetachGrace() {
+      return detachGrace;
+    }
+
+    public void setDetachGrace(Duration detachGrace) {
+      this.detachGrace = detachGrace;
+    }
+
+    public boolean isDedupe() {
+      return dedupe;
+    }
+
+    public void setDedupe(boolean dedupe) {
+      this.dedupe = dedupe;
+    }
+
+    @Override
+    public String toString() {
+      return "Journal{" +
+          "enabled=" + enabled +
+          ", capacity=" + capacity +
+          ", ttl=" + ttl +
+          ", detachGrace=" + detachGrace +
+          ", dedupe=" + dedupe +
+          '}';
+    }
+  }
+
+  public static class Sse {
+
+    /**
+     * Quiet time after which a comment heartbeat is sent to keep proxies from dropping the stream.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    /**
+     * Time without any AG-UI event after which a stream is closed; 0 disables.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(5);
+
+    /**
+     * Longest a single stream stays open; 0 disables.
+     */
+    private Duration maxDuration = Duration.ofMinutes(30);
+
+    public Duration getHeartbeatInterval() {
+      return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+      this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getIdleTimeout() {
+      return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+      this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getMaxDuration() {
+      return maxDuration;
+    }
+
+    public void setMaxDuration(Duration maxDuration) {
+      this.maxDuration = maxDuration;
+    }
+
+    @Override
+    public String toString() {
+      return "Sse{" +
+          "heartbeatInterval=" + heartbeatInterval +
+          ", idleTimeout=" + idleTimeout +
+          ", maxDuration=" + maxDuration +
+          '}';
+    }
+  }
+
+  public static class Threads {
+
+    /**
+     * How long the conversation state of an unused thread is kept.
+     */
+    private Duration ttl = Duration.ofMinutes(30);
+
+    /**
+     * Most threads held at once; the least recently used are evicted beyond it.
+     */
+    private int maxThreads = 10000;
+
+    /**
+     * CLIENT: clients send the whole history with every run. SERVER: the server keeps it and
+     * clients send only the new turn; a run without messages replays the history.
+     */
+    private HistoryMode history = HistoryMode.CLIENT;
+
+    public Duration getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+      this.ttl = ttl;
+    }
+
+    public int getMaxThreads() {
+      return maxThreads;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+      this.maxThreads = maxThreads;
+    }
+
+    public HistoryMode getHistory() {
+      return history;
+    }
+
+    public void setHistory(HistoryMode history) {
+      this.history = history;
+    }
+
+    @Override
+    public String toString() {
+      return "Threads{" +
+          "ttl=" + ttl +
+          ", maxThreads=" + maxThreads +
+          ", history=" + history +
+          '}';
+    }
+  }
+
+  public static class Request {
+
+    /**
+     * Largest accepted run request body; 0 disables the limit.
+     */
+    private DataSize maxBodySize = DataSize.ofMegabytes(2);
+
+    /**
+     * Newest messages of a run request that are read; older ones are skipped. 0 reads all.
+     */
+    private int maxMessages = 50;
+
+    /**
+     * Skip the client-declared tools, which the ADK agent does not use.
+     */
+    private boolean skipTools = true;
+
+    /**
+     * Skip the client-supplied context, which the ADK agent does not use.
+     */
+    private boolean skipContext = true;
+
+    public DataSize getMaxBodySize() {
+      return maxBodySize;
+    }
+
+    public void setMaxBodySize(DataSize maxBodySize) {
+      this.maxBodySize = maxBodySize;
+    }
+
+    public int getMaxMessages() {
+      return maxMessages;
+    }
+
+    public void setMaxMessages(int maxMessages) {
+      this.maxMessages = maxMessages;
+    }
+
+    public boolean isSkipTools() {
+      return skipTools;
+    }
+
+    public void setSkipTools(boolean skipTools) {
+      this.skipTools = skipTools;
+    }
+
+    public boolean isSkipContext() {
+      return skipContext;
+    }
+
+    public void setSkipContext(boolean skipContext) {
+      this.skipContext = skipContext;
+    }
+
+    @Override
+    public String toString() {
+      return "Request{" +
+          "maxBodySize=" + maxBodySize +
+          ", maxMessages=" + maxMessages +
+          ", skipTools=" + skipTools +
+          ", skipContext=" + skipContext +
+          '}';
+    }
+  }
+
+  public static class Surfaces {
+
+    /**
+     * Most A2UI surfaces kept for lookup by reference; the least recently used are dropped.
+     */
+    private int maxSurfaces = 1000;
+
+    public int getMaxSurfaces() {
+      return maxSurfaces;
+    }
+
+    public void setMaxSurfaces(int maxSurfaces) {
+      this.maxSurfaces = maxSurfaces;
+    }
+
+    @Override
+    public String toString() {
+      return "Surfaces{" +
+          "maxSurfaces=" + maxSurfaces +
+          '}';
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.agui.core.stream;
+
+import com.agui.core.event.BaseEvent;
+import com.agui.core.event.TextMessageContentEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the lock-based {@link EventStream} against the lock-free
+ * {@link SerializedEventStream} with four producers emitting into one stream. {@code writeCost}
+ * stands in for the time the consumer spends writing an event to the client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class EventStreamBenchmark {
+
+    @Param({"lock", "serialized"})
+    public String stream;
+
+    @Param({"0", "50"})
+    public int writeCost;
+
+    private IEventStream<BaseEvent> eventStream;
+    private final TextMessageContentEvent event = new TextMessageContentEvent();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        event.setMessageId("message");
+        event.setDelta("token ");
+        int cost = writeCost;
+        eventStream = "lock".equals(stream)
+            ? new EventStream<>(item -> Blackhole.consumeCPU(cost), error -> { }, () -> { })
+            : new SerializedEventStream<>(item -> Blackhole.consumeCPU(cost), error -> { }, () -> { });
+    }
+
+    @Benchmark
+    public void next() {
+        eventStream.next(event);
+    }
+}
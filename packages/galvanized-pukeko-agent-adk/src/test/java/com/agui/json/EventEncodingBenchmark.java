@@ -0,0 +1,105 @@
+package com.agui.json;
+
+import com.agui.core.event.BaseEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bytes on the wire for one recorded run ({@code recorded-run.jsonl}: a streamed reply and a
+ * {@code show_a2ui_surface} form) in each {@link EventEncoding}, and the time to write it.
+ * {@code format} names the encoding, plus {@code +sse} for the {@code data:} framing of the SSE
+ * endpoint and {@code +gzip} for a gzip-compressed response flushed after every event, as a
+ * streaming response has to be. The size of the run is printed once per {@code format}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 20)
+@Fork(1)
+public class EventEncodingBenchmark {
+
+    private static final byte[] DATA = "data:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"json", "compact", "smile", "cbor", "json+sse", "compact+sse", "json+sse+gzip", "compact+sse+gzip"})
+    public String format;
+
+    private EventWriters eventWriters;
+    private EventEncoding encoding;
+    private boolean sse;
+    private boolean gzip;
+    private List<BaseEvent> run;
+
+    @Setup
+    public void setUp() throws IOException {
+        var objectMapper = new ObjectMapper();
+        eventWriters = new EventWriters(objectMapper);
+        String[] parts = format.split("\\+");
+        encoding = EventEncoding.fromName(parts[0]).orElseThrow();
+        sse = format.contains("+sse");
+        gzip = format.endsWith("+gzip");
+        run = new ArrayList<>();
+        try (var reader = new BufferedReader(new InputStreamReader(
+            EventEncodingBenchmark.class.getResourceAsStream("recorded-run.jsonl"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                run.add(objectMapper.readValue(line, BaseEvent.class));
+            }
+        }
+        System.out.printf("%n%s: %d events, %d bytes per run%n", format, run.size(), writeRun());
+    }
+
+    @Benchmark
+    public long writeRun() throws IOException {
+        var wire = new CountingOutputStream();
+        OutputStream out = gzip ? new GZIPOutputStream(wire, true) : wire;
+        for (BaseEvent event : run) {
+            if (sse) {
+                out.write(DATA);
+            }
+            eventWriters.write(encoding, event, out);
+            if (sse) {
+                out.write(END);
+            }
+            out.flush();
+        }
+        out.close();
+        return wire.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(final int b) {
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.agui.server;
+
+import com.agui.core.agent.AgentSubscriber;
+import com.agui.core.agent.RunAgentInput;
+import com.agui.core.event.BaseEvent;
+import com.agui.core.event.TextMessageChunkEvent;
+import com.agui.core.event.TextMessageContentEvent;
+import com.agui.core.exception.AGUIException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Enforces the per-token allocation budget of {@link EventEmissionBenchmark}: creating a streamed
+ * token's event and emitting it may allocate no more than the event object and the {@code Instant}
+ * its constructor reads the time from. The JIT usually scalar-replaces the {@code Instant}, which
+ * is why the benchmark reads 40 B/op, but whether it does in a test JVM depends on compilation
+ * timing, so the budget allows for it. The bytes are
+ * read from the thread's allocation counter around batches of emissions, after a warmup batch has
+ * let the JIT compile the path. The lowest batch counts, as compilation finishing during a batch
+ * adds to it, while an allocation on the path shows in every batch.
+ */
+class EventEmissionAllocationTest {
+
+    /** A {@link TextMessageContentEvent} (40 B) and its timestamp's {@code Instant} (24 B). */
+    private static final long BYTES_PER_TOKEN = 64;
+    private static final int WARMUP = 200_000;
+    private static final int TOKENS = 100_000;
+    private static final int BATCHES = 5;
+
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private LocalAgent agent;
+    private AgentSubscriber subscriber;
+    private BaseEvent received;
+
+    @BeforeEach
+    void setUp() throws AGUIException {
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        agent = new LocalAgent("allocation", new com.agui.core.state.State(), List.of()) {
+            @Override
+            protected void run(
+                final RunAgentInput input,
+                final ThreadState thread,
+                final AgentSubscriber subscriber,
+                final CompletableFuture<Void> future
+            ) {
+            }
+        };
+        subscriber = new AgentSubscriber() {
+            @Override
+            public void onTextMessageContentEvent(final TextMessageContentEvent event) {
+                received = event;
+            }
+        };
+    }
+
+    @Test
+    void contentTokenAllocatesOnlyItsEvent() {
+        assertWithinBudget("content", this::emitContent, BYTES_PER_TOKEN);
+    }
+
+    @Test
+    void chunkTokenAllocatesOnlyItsEventAndTheConvertedOne() {
+        assertWithinBudget("chunk", this::emitChunks, 2 * BYTES_PER_TOKEN);
+    }
+
+    private void assertWithinBudget(final String name, final IntConsumer emit, final long budget) {
+        emit.accept(WARMUP);
+        long threadId = Thread.currentThread().getId();
+        long perToken = Long.MAX_VALUE;
+        for (int batch = 0; batch < BATCHES; batch++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            emit.accept(TOKENS);
+            perToken = Math.min(perToken, (threads.getThreadAllocatedBytes(threadId) - before) / TOKENS);
+        }
+
+        long allocated = perToken;
+        assertTrue(received != null);
+        assertTrue(allocated <= budget,
+            () -> name + " token allocated " + allocated + " B, budget is " + budget + " B");
+    }
+
+    private void emitContent(final int count) {
+        for (int i = 0; i < count; i++) {
+            var content = new TextMessageContentEvent();
+            content.setMessageId("message");
+            content.setDelta("token ");
+            agent.emitEvent(content, subscriber);
+        }
+    }
+
+    private void emitChunks(final int count) {
+        for (int i = 0; i < count; i++) {
+            var chunk = new TextMessageChunkEvent();
+            chunk.setMessageId("message");
+            chunk.setDelta("token ");
+            agent.emitEvent(chunk, subscriber);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.agui.server;
+
+import com.agui.core.agent.AgentSubscriber;
+import com.agui.core.agent.RunAgentInput;
+import com.agui.core.event.BaseEvent;
+import com.agui.core.event.TextMessageChunkEvent;
+import com.agui.core.event.TextMessageContentEvent;
+import com.agui.core.exception.AGUIException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of emitting one streamed token: the event is created, stamped and dispatched to the typed
+ * subscriber callback by {@link LocalAgent#emitEvent}. {@code content} is the event the ADK
+ * translator emits per token; {@code chunk} is converted to a content event for the subscriber.
+ * Run with {@code -prof gc} to read the bytes allocated per token from
+ * {@code gc.alloc.rate.norm}; {@link EventEmissionAllocationTest} holds the build to the budget.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventEmissionBenchmark {
+
+    @Param({"content", "chunk"})
+    public String event;
+
+    private LocalAgent agent;
+    private AgentSubscriber subscriber;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) throws AGUIException {
+        agent = new LocalAgent("benchmark", new com.agui.core.state.State(), List.of()) {
+            @Override
+            protected void run(
+                final RunAgentInput input,
+                final ThreadState thread,
+                final AgentSubscriber subscriber,
+                final CompletableFuture<Void> future
+            ) {
+            }
+        };
+        subscriber = new AgentSubscriber() {
+            @Override
+            public void onTextMessageContentEvent(final TextMessageContentEvent event) {
+                blackhole.consume(event);
+            }
+        };
+    }
+
+    @Benchmark
+    public void emit() {
+        BaseEvent token;
+        if ("chunk".equals(event)) {
+            var chunk = new TextMessageChunkEvent();
+            chunk.setMessageId("message");
+            chunk.setDelta("token ");
+            token = chunk;
+        } else {
+            var content = new TextMessageContentEvent();
+            content.setMessageId("message");
+            content.setDelta("token ");
+            token = content;
+        }
+        agent.emitEvent(token, subscriber);
+    }
+}
@@ -0,0 +1,99 @@
+package com.agui.server;
+
+import com.agui.core.message.AssistantMessage;
+import com.agui.core.message.BaseMessage;
+import com.agui.core.message.Role;
+import com.agui.core.message.UserMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One turn on a thread with {@code history} messages: the newest 50 messages arrive again with one
+ * new user message, as a client sending its history trimmed to {@code max-messages} does, and the
+ * run then reads the latest user message and the message list. {@code indexed} is
+ * {@link MessageStore}; {@code scan} is the merge it replaced, which searched the history for
+ * every incoming id.
+ *
+ * <p>Each iteration starts from a fresh thread and runs a batch of 100 turns, so the history only
+ * grows by that much while it is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20, batchSize = 100)
+@Measurement(iterations = 20, batchSize = 100)
+@Fork(1)
+public class MessageStoreBenchmark {
+
+    private static final int WINDOW = 50;
+
+    @Param({"1000", "10000", "100000"})
+    public int history;
+
+    @Param({"indexed", "scan"})
+    public String store;
+
+    private MessageStore indexed;
+    private List<BaseMessage> scanned;
+    private List<BaseMessage> window;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        indexed = new MessageStore();
+        scanned = new ArrayList<>();
+        window = new ArrayList<>();
+        next = 0;
+        for (int i = 0; i < history; i++) {
+            BaseMessage message = message(i);
+            indexed.add(message);
+            scanned.add(message);
+            window.add(message);
+            if (window.size() > WINDOW) {
+                window.remove(0);
+            }
+        }
+        next = history;
+    }
+
+    @Benchmark
+    public void turn(final Blackhole blackhole) {
+        window.remove(0);
+        window.add(message(next++));
+        if ("indexed".equals(store)) {
+            indexed.merge(window);
+            blackhole.consume(indexed.getLatest(Role.user));
+            blackhole.consume(indexed.getMessages());
+        } else {
+            for (BaseMessage message : window) {
+                if (scanned.stream().noneMatch(m -> m.getId().equals(message.getId()))) {
+                    scanned.add(message);
+                }
+            }
+            blackhole.consume(scanned.stream().filter(m -> m.getRole() == Role.user).reduce((a, b) -> b));
+            blackhole.consume(scanned);
+        }
+    }
+
+    private static BaseMessage message(final int i) {
+        BaseMessage message = i % 2 == 0 ? new UserMessage() : new AssistantMessage();
+        message.setId("message-" + i);
+        message.setContent("content " + i);
+        return message;
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.galvanized_pukeko;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SurfaceStoreTest {
+
+  private static final String FORM_V1 = "{\"surfaceUpdate\":{\"surfaceId\":\"form\",\"components\":[]}}\n"
+      + "{\"beginRendering\":{\"surfaceId\":\"form\",\"root\":\"a\"}}";
+  private static final String FORM_V2 = "{\"surfaceUpdate\":{\"surfaceId\":\"form\",\"components\":[{\"id\":\"b\"}]}}\n"
+      + "{\"beginRendering\":{\"surfaceId\":\"form\",\"root\":\"b\"}}";
+  private static final String CARD = "{\"surfaceUpdate\":{\"surfaceId\":\"card\",\"components\":[]}}";
+
+  @Test
+  void referencesSurfaceIdAndContentHash() {
+    var surface = new SurfaceStore(10).put("t1", FORM_V1);
+
+    assertEquals("form", surface.surfaceId());
+    assertEquals("form@" + surface.hash(), surface.ref());
+    assertEquals(16, surface.hash().length());
+  }
+
+  @Test
+  void reusesTheEntryForIdenticalContent() {
+    var store = new SurfaceStore(10);
+
+    var first = store.put("t1", FORM_V1);
+    var second = store.put("t1", FORM_V1);
+
+    assertEquals(first, second);
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void resolvesRefsAndSurfaceIdsToTheLatestVersion() {
+    var store = new SurfaceStore(10);
+    var v1 = store.put("t1", FORM_V1);
+    var v2 = store.put("t1", FORM_V2);
+
+    assertNotEquals(v1.ref(), v2.ref());
+    assertEquals(Optional.of(v1), store.get("t1", v1.ref()));
+    assertEquals(Optional.of(v2), store.get("t1", v2.ref()));
+    assertEquals(Optional.of(v2), store.get("t1", "form"));
+    assertEquals(Optional.empty(), store.get("t1", "card"));
+    assertEquals(Optional.empty(), store.get("t1", "form@0000000000000000"));
+  }
+
+  @Test
+  void keepsThreadsApart() {
+    var store = new SurfaceStore(10);
+    var surface = store.put("t1", FORM_V1);
+
+    assertEquals(Optional.empty(), store.get("t2", surface.ref()));
+    assertEquals(Optional.empty(), store.get("t2", "form"));
+
+    var other = store.put("t2", FORM_V2);
+    assertEquals(Optional.of(surface), store.get("t1", "form"));
+    assertEquals(Optional.of(other), store.get("t2", "form"));
+    assertEquals("t1", surface.threadId());
+  }
+
+  @Test
+  void threadIdsCannotReachIntoOtherThreadsThroughTheKey() {
+    var store = new SurfaceStore(10);
+    store.put("a", FORM_V1);
+
+    // "a" + "form" and "af" + "orm" would collide if the key were a plain concatenation
+    assertEquals(Optional.empty(), store.get("af", "orm"));
+  }
+
+  @Test
+  void evictsTheLeastRecentlyUsedSurface() {
+    var store = new SurfaceStore(2);
+    var form = store.put("t1", FORM_V1);
+    var card = store.put("t1", CARD);
+
+    // Reading the form makes the card the least recently used
+    assertTrue(store.get("t1", form.ref()).isPresent());
+    store.put("t2", FORM_V2);
+
+    assertEquals(2, store.size());
+    assertEquals(Optional.of(form), store.get("t1", "form"));
+    assertEquals(Optional.empty(), store.get("t1", card.ref()));
+    assertEquals(Optional.empty(), store.get("t1", "card"));
+  }
+
+  @Test
+  void evictingAnOldVersionKeepsTheLatest() {
+    var store = new SurfaceStore(2);
+    store.put("t1", FORM_V1);
+    var v2 = store.put("t1", FORM_V2);
+    store.put("t1", CARD);
+
+    assertEquals(Optional.of(v2), store.get("t1", "form"));
+  }
+}
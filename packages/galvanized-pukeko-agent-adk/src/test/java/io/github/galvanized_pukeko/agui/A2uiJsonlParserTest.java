@@ -0,0 +1,153 @@
+package io.github.galvanized_pukeko.agui;
+
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class A2uiJsonlParserTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    /** Writes non-ASCII characters as {@code \}{@code uXXXX}, as some models do. */
+    private static final ObjectMapper ESCAPING = JsonMapper.builder()
+        .enable(JsonWriteFeature.ESCAPE_NON_ASCII)
+        .build();
+
+    private static final String TEXT = "{\"surfaceUpdate\":{\"surfaceId\":\"s\",\"components\":[{\"id\":\"t\","
+        + "\"component\":{\"Text\":{\"text\":{\"literalString\":\"Use {braces}, \\\"quotes\\\" and café }{\"}}}}]}}";
+    private static final String RENDER = "{\"beginRendering\":{\"surfaceId\":\"s\",\"root\":\"t\"}}";
+
+    @Test
+    void returnsEachMessageOnceItsObjectCloses() throws Exception {
+        String args = args(TEXT + "\n" + RENDER);
+        var parser = new A2uiJsonlParser(MAPPER);
+        int split = args.indexOf("{\\\"beginRendering");
+
+        assertEquals(List.of(MAPPER.readTree(TEXT)), parser.feed(args.substring(0, split)));
+        assertEquals(List.of(MAPPER.readTree(RENDER)), parser.feed(args.substring(split)));
+    }
+
+    @Test
+    void splitsAnywhereInTheArguments() throws Exception {
+        String args = args(TEXT + "\n" + RENDER);
+        List<JsonNode> expected = List.of(MAPPER.readTree(TEXT), MAPPER.readTree(RENDER));
+        for (int split = 0; split <= args.length(); split++) {
+            assertEquals(expected, feed(args.substring(0, split), args.substring(split)), "split at " + split);
+        }
+    }
+
+    @Test
+    void splitsInsideUnicodeEscape() throws Exception {
+        String args = args(TEXT);
+        int escape = args.indexOf("\\u00E9");
+        assertTrue(escape > 0);
+
+        for (int offset = 1; offset < 6; offset++) {
+            var messages = feed(args.substring(0, escape + offset), args.substring(escape + offset));
+            assertEquals(List.of(MAPPER.readTree(TEXT)), messages);
+            assertEquals("Use {braces}, \"quotes\" and café }{",
+                messages.get(0).at("/surfaceUpdate/components/0/component/Text/text/literalString").asText());
+        }
+    }
+
+    @Test
+    void splitsBetweenBackslashAndEscapedCharacter() throws Exception {
+        String args = args(TEXT + "\n" + RENDER);
+        // The escaped quote inside the literal is \\\" in the arguments
+        int quote = args.indexOf("\\\\\\\"quotes");
+        assertTrue(quote > 0);
+
+        for (int offset = 1; offset < 4; offset++) {
+            assertEquals(List.of(MAPPER.readTree(TEXT), MAPPER.readTree(RENDER)),
+                feed(args.substring(0, quote + offset), args.substring(quote + offset)));
+        }
+        int newline = args.indexOf("\\n");
+        assertEquals(List.of(MAPPER.readTree(TEXT), MAPPER.readTree(RENDER)),
+            feed(args.substring(0, newline + 1), args.substring(newline + 1)));
+    }
+
+    @Test
+    void bracesInsideStringsDoNotEndTheObject() throws Exception {
+        String args = args(TEXT);
+        int brace = args.indexOf("}{");
+        var parser = new A2uiJsonlParser(MAPPER);
+
+        assertEquals(List.of(), parser.feed(args.substring(0, brace + 1)));
+        assertEquals(List.of(MAPPER.readTree(TEXT)), parser.feed(args.substring(brace + 1)));
+    }
+
+    @Test
+    void acceptsOneCharacterAtATime() throws Exception {
+        String args = args(TEXT + "\n" + RENDER);
+        var parser = new A2uiJsonlParser(MAPPER);
+        List<JsonNode> messages = new ArrayList<>();
+        for (int i = 0; i < args.length(); i++) {
+            messages.addAll(parser.feed(args.substring(i, i + 1)));
+        }
+        assertEquals(List.of(MAPPER.readTree(TEXT), MAPPER.readTree(RENDER)), messages);
+    }
+
+    @Test
+    void returnsSeveralMessagesFromOneDelta() throws Exception {
+        String update = "{\"dataModelUpdate\":{\"surfaceId\":\"s\",\"contents\":[{\"key\":\"k\",\"valueString\":\"v\"}]}}";
+
+        var messages = new A2uiJsonlParser(MAPPER).feed(args(TEXT + "\n" + update + "\n" + RENDER));
+
+        assertEquals(List.of(MAPPER.readTree(TEXT), MAPPER.readTree(update), MAPPER.readTree(RENDER)), messages);
+    }
+
+    @Test
+    void skipsMalformedObjectsAndKeepsTheRest() throws Exception {
+        String trailingComma = "{\"surfaceUpdate\":{\"surfaceId\":\"s\",}}";
+        String mismatched = "{\"beginRendering\":{\"surfaceId\":\"s\"]}";
+
+        var messages = new A2uiJsonlParser(MAPPER).feed(args(trailingComma + "\n" + mismatched + "\n" + RENDER));
+
+        assertEquals(List.of(MAPPER.readTree(RENDER)), messages);
+    }
+
+    @Test
+    void ignoresObjectsThatAreNotA2uiMessages() throws Exception {
+        var messages = new A2uiJsonlParser(MAPPER).feed(args("{\"note\":\"hi\"}\n" + RENDER));
+
+        assertEquals(List.of(MAPPER.readTree(RENDER)), messages);
+    }
+
+    @Test
+    void dropsAnObjectLeftOpenWhenTheValueEnds() throws Exception {
+        String args = "{\"surfaceJsonl\":\"" + RENDER.replace("\"", "\\\"") + "\\n{\\\"beginRendering\\\":{\"}";
+        var parser = new A2uiJsonlParser(MAPPER);
+
+        assertEquals(List.of(MAPPER.readTree(RENDER)), parser.feed(args));
+        assertEquals(List.of(), parser.feed("{\"surfaceJsonl\":\"" + RENDER.replace("\"", "\\\"") + "\"}"));
+    }
+
+    @Test
+    void findsTheFieldNameSplitAcrossDeltas() throws Exception {
+        String args = args(RENDER);
+        int name = args.indexOf("Jsonl");
+
+        assertEquals(List.of(MAPPER.readTree(RENDER)), feed(args.substring(0, name), args.substring(name)));
+    }
+
+    private static String args(String jsonl) throws Exception {
+        return ESCAPING.writeValueAsString(Map.of("surfaceJsonl", jsonl));
+    }
+
+    private static List<JsonNode> feed(String... deltas) {
+        var parser = new A2uiJsonlParser(MAPPER);
+        List<JsonNode> messages = new ArrayList<>();
+        for (String delta : deltas) {
+            messages.addAll(parser.feed(delta));
+        }
+        return messages;
+    }
+}
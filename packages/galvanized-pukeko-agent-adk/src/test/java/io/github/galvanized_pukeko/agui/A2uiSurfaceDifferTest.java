@@ -0,0 +1,172 @@
+package io.github.galvanized_pukeko.agui;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class A2uiSurfaceDifferTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String TITLE = "{'id':'title','component':{'Text':{'text':{'literalString':'Order'}}}}";
+    private static final String NAME = "{'id':'name','component':{'TextField':{'label':{'literalString':'Name'}}}}";
+    private static final String NAME_RENAMED = "{'id':'name','component':{'TextField':{'label':{'literalString':'Full name'}}}}";
+    private static final String SUBMIT = "{'id':'submit','component':{'Button':{'child':'title'}}}";
+    private static final String RENDER = "{'beginRendering':{'surfaceId':'form','root':'title'}}";
+
+    @Test
+    void sendsAFirstRenderInFull() {
+        var differ = new A2uiSurfaceDiffer();
+
+        assertEquals(messages(components(TITLE, NAME), data("{'key':'name','valueString':''}"), RENDER),
+            render(differ, "call-1", components(TITLE, NAME), data("{'key':'name','valueString':''}"), RENDER));
+    }
+
+    @Test
+    void sendsOnlyBeginRenderingForAnUnchangedSurface() {
+        var differ = new A2uiSurfaceDiffer();
+        render(differ, "call-1", components(TITLE, NAME), data("{'key':'name','valueString':''}"), RENDER);
+
+        assertEquals(messages(RENDER),
+            render(differ, "call-2", components(TITLE, NAME), data("{'key':'name','valueString':''}"), RENDER));
+    }
+
+    @Test
+    void sendsOnlyChangedAndAddedComponents() {
+        var differ = new A2uiSurfaceDiffer();
+        render(differ, "call-1", components(TITLE, NAME), RENDER);
+
+        assertEquals(messages(components(NAME_RENAMED, SUBMIT), RENDER),
+            render(differ, "call-2", components(TITLE, NAME_RENAMED, SUBMIT), RENDER));
+    }
+
+    @Test
+    void sendsOnlyChangedDataEntriesByPathAndKey() {
+        var differ = new A2uiSurfaceDiffer();
+        String first = dataAt("/order", "{'key':'name','valueString':'Ann'}", "{'key':'qty','valueNumber':1}");
+        render(differ, "call-1", components(TITLE), first, data("{'key':'name','valueString':'Ann'}"), RENDER);
+
+        // The same key under another path is a separate entry
+        String second = dataAt("/order", "{'key':'name','valueString':'Ann'}", "{'key':'qty','valueNumber':2}");
+        assertEquals(messages(dataAt("/order", "{'key':'qty','valueNumber':2}"), RENDER),
+            render(differ, "call-2", components(TITLE), second, data("{'key':'name','valueString':'Ann'}"), RENDER));
+    }
+
+    @Test
+    void deletesAndResendsASurfaceThatLostAComponent() {
+        var differ = new A2uiSurfaceDiffer();
+        render(differ, "call-1", components(TITLE, NAME), data("{'key':'name','valueString':''}"), RENDER);
+
+        assertEquals(messages("{'deleteSurface':{'surfaceId':'form'}}", components(TITLE),
+                data("{'key':'name','valueString':''}"), RENDER),
+            render(differ, "call-2", components(TITLE), data("{'key':'name','valueString':''}"), RENDER));
+        // The record now matches the resent render
+        assertEquals(messages(RENDER),
+            render(differ, "call-3", components(TITLE), data("{'key':'name','valueString':''}"), RENDER));
+    }
+
+    @Test
+    void deletesAndResendsASurfaceThatLostADataEntry() {
+        var differ = new A2uiSurfaceDiffer();
+        render(differ, "call-1", components(TITLE),
+            data("{'key':'name','valueString':''}", "{'key':'email','valueString':''}"), RENDER);
+
+        assertEquals(messages("{'deleteSurface':{'surfaceId':'form'}}", components(TITLE),
+                data("{'key':'name','valueString':''}"), RENDER),
+            render(differ, "call-2", components(TITLE), data("{'key':'name','valueString':''}"), RENDER));
+    }
+
+    @Test
+    void keepsSurfacesTheClientHoldsFromTheRecordedCall() {
+        var differ = new A2uiSurfaceDiffer();
+        render(differ, "call-1", components(TITLE, NAME), RENDER);
+
+        differ.resync(Map.of(A2uiSurfaceDiffer.HELD_SURFACES_PROP, Map.of("form", "call-1")));
+
+        assertEquals(messages(RENDER), render(differ, "call-2", components(TITLE, NAME), RENDER));
+    }
+
+    @Test
+    void resendsSurfacesTheClientDoesNotHold() {
+        var differ = new A2uiSurfaceDiffer();
+        render(differ, "call-1", components(TITLE, NAME), RENDER);
+
+        for (Object forwardedProps : new Object[] {
+            null,
+            Map.of(),
+            Map.of(A2uiSurfaceDiffer.HELD_SURFACES_PROP, Map.of()),
+            Map.of(A2uiSurfaceDiffer.HELD_SURFACES_PROP, Map.of("form", "call-0")),
+        }) {
+            differ.resync(forwardedProps);
+            assertEquals(messages(components(TITLE, NAME), RENDER),
+                render(differ, "call-1", components(TITLE, NAME), RENDER), String.valueOf(forwardedProps));
+        }
+    }
+
+    @Test
+    void resendsASurfaceWhoseRenderWasCutShort() {
+        var differ = new A2uiSurfaceDiffer();
+        render(differ, "call-1", components(TITLE), RENDER);
+        // The run stops before the new render's beginRendering reaches the client
+        render(differ, "call-2", components(TITLE, NAME));
+
+        differ.resync(Map.of(A2uiSurfaceDiffer.HELD_SURFACES_PROP, Map.of("form", "call-1")));
+
+        assertEquals(messages(components(TITLE, NAME), RENDER),
+            render(differ, "call-3", components(TITLE, NAME), RENDER));
+    }
+
+    @Test
+    void forgetsADeletedSurface() {
+        var differ = new A2uiSurfaceDiffer();
+        render(differ, "call-1", components(TITLE), RENDER);
+
+        assertEquals(messages("{'deleteSurface':{'surfaceId':'form'}}"),
+            render(differ, "call-2", "{'deleteSurface':{'surfaceId':'form'}}"));
+        assertEquals(messages(components(TITLE), RENDER), render(differ, "call-3", components(TITLE), RENDER));
+    }
+
+    private static List<ObjectNode> render(A2uiSurfaceDiffer differ, String toolCallId, String... lines) {
+        List<ObjectNode> out = new ArrayList<>();
+        for (String line : lines) {
+            out.addAll(differ.diff(toolCallId, (ObjectNode) json(line)));
+        }
+        return out;
+    }
+
+    private static List<JsonNode> messages(String... lines) {
+        List<JsonNode> out = new ArrayList<>();
+        for (String line : lines) {
+            out.add(json(line));
+        }
+        return out;
+    }
+
+    private static String components(String... components) {
+        return "{'surfaceUpdate':{'surfaceId':'form','components':[" + String.join(",", components) + "]}}";
+    }
+
+    private static String data(String... contents) {
+        return "{'dataModelUpdate':{'surfaceId':'form','contents':[" + String.join(",", contents) + "]}}";
+    }
+
+    private static String dataAt(String path, String... contents) {
+        return "{'dataModelUpdate':{'surfaceId':'form','path':'" + path + "','contents':["
+            + String.join(",", contents) + "]}}";
+    }
+
+    private static JsonNode json(String singleQuoted) {
+        try {
+            return MAPPER.readTree(singleQuoted.replace('\'', '"'));
+        } catch (Exception e) {
+            throw new IllegalArgumentException(singleQuoted, e);
+        }
+    }
+}
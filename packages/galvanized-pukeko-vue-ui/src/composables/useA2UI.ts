@@ -343,8 +343,24 @@ export function useA2UI() {
     activeCallbacks = cb
   }
 
-  function processBatch(messages: ServerToClientMessage[]): void {
+  // The tool call each surface was last rendered by, for surfaces whose render was streamed
+  // from a call to the end. Sent with each run so the server resends only what changed.
+  const renderedBy = new Map<string, string>()
+
+  /**
+   * Applies A2UI messages; `toolCallId` is the call they were streamed from, if any.
+   */
+  function processBatch(messages: ServerToClientMessage[], toolCallId?: string): void {
     processor.processMessages(messages)
+    for (const message of messages) {
+      // Mirrors the server's record: a surface mid-render, or loaded in full, is not reported
+      for (const body of [message.surfaceUpdate, message.dataModelUpdate, message.deleteSurface]) {
+        if (body) renderedBy.delete(body.surfaceId ?? '')
+      }
+      if (message.beginRendering && toolCallId) {
+        renderedBy.set(message.beginRendering.surfaceId ?? '', toolCallId)
+      }
+    }
     // Copy surfaces to trigger reactivity
     const newSurfaces = new Map<string, Surface>()
     for (const [id, surface] of processor.getSurfaces()) {
@@ -356,6 +372,15 @@ export function useA2UI() {
   function clearSurfaces(): void {
     processor.clearSurfaces()
     surfaces.value = new Map()
+    renderedBy.clear()
+  }
+
+  /**
+   * The surfaces shown, mapped to the tool calls that rendered them, as sent to the server in
+   * the `a2uiSurfaces` forwarded prop.
+   */
+  function heldSurfaces(): Record<string, string> {
+    return Object.fromEntries(renderedBy)
   }
 
   function sendAction(
@@ -420,6 +445,7 @@ export function useA2UI() {
     pendingToolCallId,
     processBatch,
     clearSurfaces,
+    heldSurfaces,
     sendAction,
     setCallbacks,
     processor,
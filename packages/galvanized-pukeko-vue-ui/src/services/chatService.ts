@@ -41,7 +41,10 @@ export interface ChatCallbacks {
   onToolCallStart?: (toolCallId: string, toolCallName: string) => void
   onToolCallEnd?: (toolCallId: string, toolCallName: string, toolCallBuffer: string) => void
   onToolCallResult?: (toolCallId: string, toolCallName: string, content: string) => void
+  onCustomEvent?: (name: string, value: unknown) => void
   onError: (error: string) => void
+  /** A2UI surfaces the client shows, by the tool call that rendered them; see useA2UI. */
+  heldSurfaces?: () => Record<string, string>
 }
 
 export type ClientToolHandler = (
@@ -202,6 +205,22 @@ function buildSubscriber(callbacks: ChatCallbacks): AgentSubscriber {
       setRunState('waiting', 'Waiting for model…')
       callbacks.onToolCallResult?.(event.toolCallId, toolCallName, event.content ?? '')
     },
+    onCustomEvent({ event, messages }) {
+      if (event.name === 'tool_call.superseded') {
+        // The server restarted this call under a new id; it never runs, so drop it from the
+        // message log sent back with the next run and from the rendered parts
+        const { toolCallId } = event.value as { toolCallId: string }
+        const index = currentMsg.parts.findIndex(
+          (part) => part.kind === 'tool-call' && part.toolCallId === toolCallId,
+        )
+        if (index >= 0) {
+          currentMsg.parts.splice(index, 1)
+          emit()
+        }
+        return { messages: withoutToolCall(messages, toolCallId) }
+      }
+      callbacks.onCustomEvent?.(event.name, event.value)
+    },
     onRunFinishedEvent() {
       currentMsg.done = true
       // Mark any still-pending tool calls as complete; the run is over.
@@ -224,6 +243,15 @@ function buildSubscriber(callbacks: ChatCallbacks): AgentSubscriber {
   }
 }
 
+// The message log with the tool call `toolCallId` removed from its assistant message.
+function withoutToolCall(messages: Message[], toolCallId: string): Message[] {
+  return messages.map((m) => {
+    const toolCalls = (m as { toolCalls?: Array<{ id: string }> }).toolCalls
+    if (m.role !== 'assistant' || !toolCalls?.some((tc) => tc.id === toolCallId)) return m
+    return { ...m, toolCalls: toolCalls.filter((tc) => tc.id !== toolCallId) } as Message
+  })
+}
+
 // Walk the agent's message log and return tool calls (in order) that have no
 // matching tool-result message and whose name the caller registered a handler
 // for. The server-side LangGraph interrupt pauses at the first client tool, so
@@ -329,6 +357,24 @@ class ChatService {
     setRunState('idle', 'Stopped by operator')
   }
 
+  /**
+   * Fetches the A2UI JSONL of a surface the agent rendered, by the `surfaceRef` its
+   * show_a2ui_surface result carries instead of the JSONL itself. Surfaces are only
+   * served to the thread that rendered them.
+   */
+  async fetchSurface(surfaceRef: string): Promise<string> {
+    const url =
+      configService
+        .get()
+        .agUiUrl.replace(/\/run$/, `/surfaces/${encodeURIComponent(surfaceRef)}`) +
+      `?threadId=${encodeURIComponent(this.getThreadId())}`
+    const response = await fetch(url)
+    if (!response.ok) {
+      throw new Error(`Surface ${surfaceRef} could not be loaded (${response.status})`)
+    }
+    return response.text()
+  }
+
   private ensureAgent(): HttpAgent {
     if (!this.agent) {
       const config = configService.get()
@@ -384,7 +430,7 @@ class ChatService {
   /**
    * Submit a user action (e.g. form submission) as a user message and stream the follow-up response.
    * User actions are NOT sent as tool messages — the show_a2ui_surface tool call is already resolved
-   * once the surfaceJsonl is returned. A second tool message for the same toolCallId would be invalid.
+   * once its result is returned. A second tool message for the same toolCallId would be invalid.
    */
   async submitToolResult(
     _toolCallId: string,
@@ -437,10 +483,14 @@ class ChatService {
         // POST. detachActiveRun() is a no-op if nothing is in flight.
         await agent.detachActiveRun()
 
+        // The server sends surfaces the client still shows again only as far as they changed
+        const heldSurfaces = callbacks.heldSurfaces?.()
+        const runProps = heldSurfaces ? { ...forwardedProps, a2uiSurfaces: heldSurfaces } : forwardedProps
+
         await agent.runAgent(
           {
             tools: opts.tools,
-            ...(forwardedProps ? { forwardedProps } : {}),
+            ...(runProps ? { forwardedProps: runProps } : {}),
           },
           buildSubscriber(callbacks),
         )